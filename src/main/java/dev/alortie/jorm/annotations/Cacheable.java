@@ -0,0 +1,15 @@
+package dev.alortie.jorm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Keep loaded rows of this entity in a process-wide cache shared by all sessions
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+    int maxSize() default 10_000; // Most rows held
+    long ttlSeconds() default 300; // Time a row stays cached after it is loaded; 0 keeps it until evicted
+    EvictionPolicy eviction() default EvictionPolicy.LRU;
+}
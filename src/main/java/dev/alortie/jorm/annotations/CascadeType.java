@@ -0,0 +1,8 @@
+package dev.alortie.jorm.annotations;
+
+public enum CascadeType {
+    NONE, // Never write the referenced entity; it must already be persisted
+    PERSIST, // Insert the referenced entity first if it has not been persisted yet
+    UPDATE, // Update the referenced entity along with its owner
+    ALL // PERSIST and UPDATE
+}
@@ -0,0 +1,6 @@
+package dev.alortie.jorm.annotations;
+
+public enum EvictionPolicy {
+    LRU, // Evict the least recently used entry
+    TINY_LFU // LRU, but a new entry is only admitted if it is used more often than the entry it would evict
+}
@@ -0,0 +1,7 @@
+package dev.alortie.jorm.annotations;
+
+public enum FetchType {
+    DEFAULT, // Use the default set on JORM
+    EAGER, // Load the related entity with its owner
+    LAZY // Load the related entity on first access; the field must be a Ref
+}
@@ -9,4 +9,6 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 public @interface ManyToOne {
     String foreignKey() default "";
+    FetchType fetch() default FetchType.DEFAULT; // LAZY requires a Ref<T> field
+    CascadeType cascade() default CascadeType.PERSIST;
 }
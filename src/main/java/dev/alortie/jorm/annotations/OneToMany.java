@@ -9,4 +9,6 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 public @interface OneToMany {
     Class<?> mappedBy(); // Owning side of the relationship
+    String foreignKey() default ""; // Owning side's column, needed when it references this entity more than once
+    FetchType fetch() default FetchType.LAZY;
 }
@@ -0,0 +1,98 @@
+package dev.alortie.jorm.cache;
+
+/**
+ * Point-in-time snapshot of {@link EntityCache} counters.
+ */
+public class CacheStats {
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long puts;
+    private final long evictions;
+    private final long rejections;
+    private final long expirations;
+    private final long invalidations;
+    private final long estimatedBytes;
+
+    public CacheStats(
+            int size,
+            long hits,
+            long misses,
+            long puts,
+            long evictions,
+            long rejections,
+            long expirations,
+            long invalidations,
+            long estimatedBytes
+    ) {
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.evictions = evictions;
+        this.rejections = rejections;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    // Share of lookups answered from the cache, 0 before the first lookup
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // New rows turned away by TinyLFU admission because they were used less than the eviction candidate
+    public long getRejections() {
+        return rejections;
+    }
+
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    // Rough heap footprint of the cached rows
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "size=" + size +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", hitRatio=" + String.format("%.3f", getHitRatio()) +
+                ", puts=" + puts +
+                ", evictions=" + evictions +
+                ", rejections=" + rejections +
+                ", expirations=" + expirations +
+                ", invalidations=" + invalidations +
+                ", estimatedBytes=" + estimatedBytes +
+                '}';
+    }
+}
@@ -0,0 +1,175 @@
+package dev.alortie.jorm.cache;
+
+import dev.alortie.jorm.annotations.EvictionPolicy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of one table's rows, keyed by primary key.
+ * Rows are stored as read from the database, in TableMeta column order with foreign keys as raw
+ * key values, so every hit is hydrated into a fresh entity and nothing cached is shared or mutated.
+ * Writes through JORM invalidate the affected rows; writes made outside JORM are only picked up
+ * once the row expires.
+ */
+public class EntityCache {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final FrequencySketch sketch; // null for plain LRU
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Bumped by every invalidation; a row read before the bump may be stale and is not cached
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+    private long rejections;
+    private long expirations;
+    private long invalidations;
+    private long estimatedBytes;
+
+    private static class Entry {
+        final Object[] row;
+        final long expiresAt;
+        final long bytes;
+
+        Entry(Object[] row, long expiresAt, long bytes) {
+            this.row = row;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+    }
+
+    public EntityCache(int maxSize, long ttlSeconds, EvictionPolicy eviction) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache maxSize must be >= 1");
+        }
+        if (ttlSeconds < 0) {
+            throw new IllegalArgumentException("Cache ttlSeconds must be >= 0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.sketch = eviction == EvictionPolicy.TINY_LFU ? new FrequencySketch(maxSize) : null;
+    }
+
+    /**
+     * Look up a row by primary key.
+     *
+     * @param primaryKey The primary key.
+     * @return A copy of the cached row, or null on a miss.
+     */
+    public synchronized Object[] get(Object primaryKey) {
+        if (sketch != null) sketch.increment(primaryKey);
+
+        Entry entry = entries.get(primaryKey);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.expiresAt > 0) {
+            remove(primaryKey);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(entry.row);
+    }
+
+    // Read before querying the database and pass to put, so rows racing an invalidation are dropped
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Cache a row read from the database.
+     *
+     * @param primaryKey The row's primary key.
+     * @param row        The row, in TableMeta column order.
+     * @param generation The value of {@link #generation()} taken before the row was read.
+     */
+    public synchronized void put(Object primaryKey, Object[] row, long generation) {
+        if (generation != this.generation || primaryKey == null) return;
+
+        if (!entries.containsKey(primaryKey) && entries.size() >= maxSize) {
+            Map.Entry<Object, Entry> eldest = entries.entrySet().iterator().next();
+            if (sketch != null && sketch.frequency(primaryKey) <= sketch.frequency(eldest.getKey())) {
+                rejections++;
+                return;
+            }
+            remove(eldest.getKey());
+            evictions++;
+        }
+
+        Object[] stored = copy(row);
+        long bytes = estimateBytes(stored);
+        Entry previous = entries.put(primaryKey, new Entry(stored, System.nanoTime() + ttlNanos, bytes));
+        if (previous != null) estimatedBytes -= previous.bytes;
+        estimatedBytes += bytes;
+        puts++;
+    }
+
+    public synchronized void invalidate(Object primaryKey) {
+        generation++;
+        if (remove(primaryKey)) invalidations++;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    // Drop expired rows; lookups also drop them lazily
+    public synchronized void purgeExpired() {
+        if (ttlNanos == 0) return;
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (now - entry.expiresAt > 0) {
+                it.remove();
+                estimatedBytes -= entry.bytes;
+                expirations++;
+            }
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(entries.size(), hits, misses, puts, evictions, rejections, expirations, invalidations, estimatedBytes);
+    }
+
+    private boolean remove(Object primaryKey) {
+        Entry removed = entries.remove(primaryKey);
+        if (removed == null) return false;
+        estimatedBytes -= removed.bytes;
+        return true;
+    }
+
+    // Byte arrays are the only mutable column values, so they are copied along with the row
+    private static Object[] copy(Object[] row) {
+        Object[] copy = row.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (copy[i] instanceof byte[]) copy[i] = ((byte[]) copy[i]).clone();
+        }
+        return copy;
+    }
+
+    // Map entry, holder and array headers plus each boxed value; strings assume compact Latin-1 storage
+    private static long estimateBytes(Object[] row) {
+        long bytes = 64 + 16 + 8L * row.length;
+        for (Object value : row) {
+            if (value == null) continue;
+            if (value instanceof String) bytes += 40 + ((String) value).length();
+            else if (value instanceof byte[]) bytes += 16 + ((byte[]) value).length;
+            else if (value instanceof Long || value instanceof Double) bytes += 24;
+            else bytes += 16;
+        }
+        return bytes;
+    }
+}
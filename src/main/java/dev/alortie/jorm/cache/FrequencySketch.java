@@ -0,0 +1,64 @@
+package dev.alortie.jorm.cache;
+
+/**
+ * Count-min sketch of how often keys were used, with 4-bit counters that are halved
+ * periodically so that old popularity fades. Used by TinyLFU admission.
+ */
+class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[] counters;
+    private final int mask;
+    private final int resetAfter;
+    private int additions;
+
+    FrequencySketch(int maxSize) {
+        int width = Integer.highestOneBit(Math.max(16, maxSize) * 2 - 1) << 1; // power of two >= 2 * maxSize
+        this.counters = new byte[width * DEPTH];
+        this.mask = width - 1;
+        this.resetAfter = 10 * Math.max(16, maxSize);
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counters[index] < 15) {
+                counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= resetAfter) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = 15;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>= 1;
+        }
+        additions /= 2;
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 15);
+    }
+}
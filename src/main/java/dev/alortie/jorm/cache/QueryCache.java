@@ -0,0 +1,94 @@
+package dev.alortie.jorm.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide LRU cache of query results, stored as primary key lists.
+ * Each entry records the queried table's write stamp from before the query ran; an entry whose
+ * table has been written through JORM since then, or whose TTL has passed, is treated as a miss.
+ * Entities are then looked up by key, which the session and entity caches can answer from memory.
+ */
+public class QueryCache {
+    private final int maxSize;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+
+    private static class Entry {
+        final List<Object> primaryKeys;
+        final long writeStamp;
+        final long expiresAt;
+
+        Entry(List<Object> primaryKeys, long writeStamp, long expiresAt) {
+            this.primaryKeys = primaryKeys;
+            this.writeStamp = writeStamp;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public QueryCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Query cache maxSize must be >= 1");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Look up the result of a query.
+     *
+     * @param key        The query's table, SQL and parameters.
+     * @param writeStamp The table's current write stamp.
+     * @return The primary keys of the result in order, or null on a miss.
+     */
+    public synchronized List<Object> get(Object key, long writeStamp) {
+        Entry entry = entries.get(key);
+        if (entry != null && (entry.writeStamp != writeStamp || System.nanoTime() - entry.expiresAt > 0)) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.primaryKeys;
+    }
+
+    /**
+     * Cache the result of a query.
+     *
+     * @param key         The query's table, SQL and parameters.
+     * @param primaryKeys The primary keys of the result in order.
+     * @param writeStamp  The table's write stamp taken before the query ran.
+     * @param ttlSeconds  How long the result may be reused.
+     */
+    public synchronized void put(Object key, List<Object> primaryKeys, long writeStamp, long ttlSeconds) {
+        entries.put(key, new Entry(Collections.unmodifiableList(new ArrayList<>(primaryKeys)), writeStamp,
+                System.nanoTime() + ttlSeconds * 1_000_000_000L));
+        if (entries.size() > maxSize) {
+            Map.Entry<Object, Entry> eldest = entries.entrySet().iterator().next();
+            entries.remove(eldest.getKey());
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
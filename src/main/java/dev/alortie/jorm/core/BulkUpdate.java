@@ -0,0 +1,46 @@
+package dev.alortie.jorm.core;
+
+import dev.alortie.jorm.metadata.ColumnMeta;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A set-based UPDATE of the rows matching a {@link QueryBuilder}, from {@link QueryBuilder#update()}.
+ * It runs as a single statement without loading the rows; cached rows, cached queries
+ * and session instances of the table are dropped afterwards.
+ *
+ * @param <T> The updated entity type.
+ */
+public class BulkUpdate<T> {
+    private final QueryBuilder<T> query;
+    private final Map<ColumnMeta, Object> assignments = new LinkedHashMap<>();
+
+    BulkUpdate(QueryBuilder<T> query) {
+        this.query = query;
+    }
+
+    /**
+     * Assign a value to a column of every matching row.
+     *
+     * @param field Column name or entity field name.
+     * @param value The new value; an entity or Ref for a foreign key is stored as its key.
+     * @return This update.
+     */
+    public BulkUpdate<T> set(String field, Object value) {
+        assignments.put(query.column(field), value);
+        return this;
+    }
+
+    /**
+     * Run the update.
+     *
+     * @return The number of rows changed.
+     */
+    public int execute() {
+        if (assignments.isEmpty()) {
+            throw new IllegalStateException("Nothing to update; call set() first");
+        }
+        return query.executeUpdate(assignments);
+    }
+}
@@ -0,0 +1,89 @@
+package dev.alortie.jorm.core;
+
+import dev.alortie.jorm.metadata.ColumnMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates of a {@link QueryBuilder} computed per group, from {@link QueryBuilder#groupBy(String...)}.
+ * Each terminal runs one GROUP BY query and returns a map ordered by group.
+ * The key of a group is its value when grouping by one column, or a list of values in groupBy order.
+ *
+ * @param <T> The queried entity type.
+ */
+public class GroupBy<T> {
+    private final QueryBuilder<T> query;
+    private final List<ColumnMeta> groupColumns;
+
+    GroupBy(QueryBuilder<T> query, List<ColumnMeta> groupColumns) {
+        this.query = query;
+        this.groupColumns = groupColumns;
+    }
+
+    public Map<Object, Long> count() {
+        Map<Object, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : query.aggregate(Collections.singletonList("COUNT(*)"), groupColumns, "")) {
+            counts.put(key(row), ((Number) row[groupColumns.size()]).longValue());
+        }
+        return counts;
+    }
+
+    public Map<Object, Number> sum(String field) {
+        Map<Object, Number> sums = new LinkedHashMap<>();
+        for (Object[] row : aggregate("SUM", field)) {
+            sums.put(key(row), (Number) row[groupColumns.size()]);
+        }
+        return sums;
+    }
+
+    public Map<Object, Double> avg(String field) {
+        Map<Object, Double> averages = new LinkedHashMap<>();
+        for (Object[] row : aggregate("AVG", field)) {
+            Number average = (Number) row[groupColumns.size()];
+            averages.put(key(row), average == null ? null : average.doubleValue());
+        }
+        return averages;
+    }
+
+    public Map<Object, Object> min(String field) {
+        return minMax("MIN", field);
+    }
+
+    public Map<Object, Object> max(String field) {
+        return minMax("MAX", field);
+    }
+
+    private Map<Object, Object> minMax(String function, String field) {
+        ColumnMeta column = query.column(field);
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (Object[] row : aggregate(function, field)) {
+            values.put(key(row), value(column, row[groupColumns.size()]));
+        }
+        return values;
+    }
+
+    private List<Object[]> aggregate(String function, String field) {
+        String expression = function + "(" + query.column(field).getName() + ")";
+        return query.aggregate(Collections.singletonList(expression), groupColumns, "");
+    }
+
+    private Object key(Object[] row) {
+        if (groupColumns.size() == 1) {
+            return value(groupColumns.get(0), row[0]);
+        }
+        List<Object> key = new ArrayList<>(groupColumns.size());
+        for (int i = 0; i < groupColumns.size(); i++) {
+            key.add(value(groupColumns.get(i), row[i]));
+        }
+        return Collections.unmodifiableList(key);
+    }
+
+    // Converted to the field's type; foreign keys stay keys
+    private static Object value(ColumnMeta column, Object value) {
+        return value == null || column.isForeignKey() ? value : Projection.convert(value, column.getType());
+    }
+}
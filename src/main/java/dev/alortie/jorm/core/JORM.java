@@ -1,11 +1,17 @@
 package dev.alortie.jorm.core;
 
+import dev.alortie.jorm.annotations.FetchType;
+import dev.alortie.jorm.cache.QueryCache;
 import dev.alortie.jorm.metadata.TableMeta;
 import dev.alortie.jorm.utils.JORMAdapter;
+import dev.alortie.jorm.utils.TransactionOptions;
 import dev.alortie.jorm.utils.ReflectionUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Singleton class that manages the ORM engine.
@@ -15,6 +21,10 @@ public class JORM {
     private static JORM instance;
     private JORMAdapter JORMAdapter;
     private List<TableMeta<?>> entities;
+    private Map<Class<?>, TableMeta<?>> entitiesByClass;
+    private volatile FetchType defaultFetchType = FetchType.EAGER;
+    private final ThreadLocal<Session> currentSession = new ThreadLocal<>();
+    private volatile QueryCache queryCache = new QueryCache(1000);
 
 
     private JORM() {
@@ -29,9 +39,12 @@ public class JORM {
         instance = new JORM(); // Create a new instance
         instance.JORMAdapter = JORMAdapter; // Set the DBInterface
         instance.entities = new ArrayList<>(); // Initialize the entities list
+        instance.entitiesByClass = new HashMap<>();
         for (Class<?> entity : entities) { // Generate TableMeta for each entity
             TableMeta<?> tableMeta = ReflectionUtils.generateTableMeta(entity);
+            JORMAdapter.prepareTable(tableMeta); // Precompile the table's SQL
             instance.entities.add(tableMeta);
+            instance.entitiesByClass.put(entity, tableMeta);
         }
 
         instance.initialize(); // Initialize the database
@@ -58,19 +71,129 @@ public class JORM {
 
     @SuppressWarnings("unchecked")
     public <T> TableMeta<T> repository(Class<T> entity) {
-        for (TableMeta<?> tableMeta : entities) {
-            if (tableMeta.getEntityClass().equals(entity)) {
-                return (TableMeta<T>) tableMeta;
-            }
+        TableMeta<?> tableMeta = entitiesByClass.get(entity);
+        if (tableMeta != null) {
+            return (TableMeta<T>) tableMeta;
         }
         throw new IllegalArgumentException("Entity not found: " + entity.getSimpleName());
     }
 
-    // Placeholder for later use
+    // Release the adapter's pooled connections
     public void shutdown() {
-        return;
+        JORMAdapter.disconnect();
+    }
+
+
+    /**
+     * Open a session and bind it to the current thread until it is closed.
+     *
+     * @return The new session, to close with try-with-resources.
+     */
+    public Session openSession() {
+        if (currentSession.get() != null) {
+            throw new IllegalStateException("A session is already open on this thread.");
+        }
+        Session session = new Session(this);
+        currentSession.set(session);
+        return session;
+    }
+
+    // The session open on the current thread, or null
+    public Session getCurrentSession() {
+        return currentSession.get();
+    }
+
+    void unbindSession(Session session) {
+        if (currentSession.get() == session) {
+            currentSession.remove();
+        }
+    }
+
+    /**
+     * Run work in one transaction on one connection, committing when it returns and rolling back if it throws.
+     * Changes queued on the current session are flushed before the commit.
+     * Inside another transaction the work simply joins it.
+     *
+     * @param work The operations to run.
+     */
+    public void transaction(Runnable work) {
+        transaction(new TransactionOptions(), () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <R> R transaction(Supplier<R> work) {
+        return transaction(new TransactionOptions(), work);
+    }
+
+    public <R> R transaction(TransactionOptions options, Supplier<R> work) {
+        if (JORMAdapter.isTransactionActive()) {
+            return work.get();
+        }
+        JORMAdapter.begin(options);
+        R result;
+        try {
+            result = work.get();
+            Session session = currentSession.get();
+            if (session != null) {
+                session.flush();
+            }
+        } catch (RuntimeException | Error e) {
+            JORMAdapter.rollback();
+            throw e;
+        }
+        JORMAdapter.commit();
+        return result;
     }
 
+    // Start a transaction bound to the current thread; end it with commit() or rollback()
+    public void begin() {
+        JORMAdapter.begin(new TransactionOptions());
+    }
+
+    public void begin(TransactionOptions options) {
+        JORMAdapter.begin(options);
+    }
+
+    // Flush the current session, if any, then commit
+    public void commit() {
+        Session session = currentSession.get();
+        if (session != null) {
+            try {
+                session.flush();
+            } catch (RuntimeException e) {
+                JORMAdapter.rollback();
+                throw e;
+            }
+        }
+        JORMAdapter.commit();
+    }
+
+    public void rollback() {
+        JORMAdapter.rollback();
+    }
+
+    // Fetch type used by Ref<T> relationships declared with FetchType.DEFAULT
+    public FetchType getDefaultFetchType() {
+        return defaultFetchType;
+    }
+
+    public void setDefaultFetchType(FetchType defaultFetchType) {
+        if (defaultFetchType == FetchType.DEFAULT) {
+            throw new IllegalArgumentException("The default fetch type must be EAGER or LAZY");
+        }
+        this.defaultFetchType = defaultFetchType;
+    }
+
+    // Results of queries marked cacheable on QueryBuilder
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    public void setQueryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
 
     public JORMAdapter getAdapter() {
         return JORMAdapter;
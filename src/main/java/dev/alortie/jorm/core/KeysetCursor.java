@@ -0,0 +1,103 @@
+package dev.alortie.jorm.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Encodes the sort key of the last row on a page into a URL-safe token.
+ * Values are written with a type tag rather than Java serialization, so a token can only ever
+ * decode to the column types below, and it records the ordering it was made for.
+ */
+class KeysetCursor {
+    private static final byte VERSION = 1;
+
+    private KeysetCursor() {}
+
+    static String encode(String ordering, Object[] values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(ordering);
+            out.writeByte(values.length);
+            for (Object value : values) {
+                write(out, value);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode cursor", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static Object[] decode(String ordering, String cursor) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cursor version");
+            }
+            if (!in.readUTF().equals(ordering)) {
+                throw new IllegalArgumentException("Cursor was created for a different ordering than " + ordering);
+            }
+            Object[] values = new Object[in.readByte()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = read(in);
+            }
+            return values;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+        }
+    }
+
+    private static void write(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Integer) {
+            out.writeByte('i');
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte('l');
+            out.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            out.writeByte('h');
+            out.writeShort((Short) value);
+        } else if (value instanceof Double) {
+            out.writeByte('d');
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte('f');
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte('b');
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            out.writeByte('s');
+            out.writeUTF((String) value);
+        } else if (value instanceof LocalDate) {
+            out.writeByte('D');
+            out.writeUTF(value.toString());
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte('T');
+            out.writeUTF(value.toString());
+        } else {
+            throw new IllegalArgumentException("Cannot paginate on " + (value == null ? "null" : value.getClass().getName()) + " values");
+        }
+    }
+
+    private static Object read(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case 'i': return in.readInt();
+            case 'l': return in.readLong();
+            case 'h': return in.readShort();
+            case 'd': return in.readDouble();
+            case 'f': return in.readFloat();
+            case 'b': return in.readBoolean();
+            case 's': return in.readUTF();
+            case 'D': return LocalDate.parse(in.readUTF());
+            case 'T': return LocalDateTime.parse(in.readUTF());
+            default: throw new IllegalArgumentException("Unknown value tag " + tag);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package dev.alortie.jorm.core;
+
+import dev.alortie.jorm.metadata.TableMeta;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List behind a lazy @OneToMany field. It only holds the parent's key and loads the
+ * children with one query on first access; after that it behaves as a plain ArrayList.
+ *
+ * @param <T> The child entity type.
+ */
+public class LazyList<T> extends AbstractList<T> {
+    private final TableMeta<T> childTable;
+    private final String foreignKey;
+    private final Object parentId;
+    private List<T> elements;
+
+    public LazyList(TableMeta<T> childTable, String foreignKey, Object parentId) {
+        this.childTable = childTable;
+        this.foreignKey = foreignKey;
+        this.parentId = parentId;
+    }
+
+    private synchronized List<T> elements() {
+        if (elements == null) {
+            List<T> loaded = JORM.getInstance().getAdapter().selectWhere(childTable, foreignKey + " = ?", parentId);
+            elements = loaded == null ? new ArrayList<>() : loaded;
+        }
+        return elements;
+    }
+
+    public synchronized boolean isLoaded() {
+        return elements != null;
+    }
+
+    @Override
+    public T get(int index) {
+        return elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements().size();
+    }
+
+    @Override
+    public T set(int index, T element) {
+        return elements().set(index, element);
+    }
+
+    @Override
+    public void add(int index, T element) {
+        modCount++;
+        elements().add(index, element);
+    }
+
+    @Override
+    public T remove(int index) {
+        modCount++;
+        return elements().remove(index);
+    }
+
+    @Override
+    public String toString() {
+        return isLoaded() ? elements.toString() : "LazyList{" + childTable.getEntityClass().getSimpleName() + "." + foreignKey + " = " + parentId + "}";
+    }
+}
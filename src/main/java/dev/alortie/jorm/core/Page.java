@@ -0,0 +1,37 @@
+package dev.alortie.jorm.core;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query.
+ * Pass {@link #getNextCursor()} to {@link QueryBuilder#after(String)} with the same ordering to read the next page.
+ *
+ * @param <T> The entity type.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // Opaque token positioned after the last item, or null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" + items + ", next=" + nextCursor + "}";
+    }
+}
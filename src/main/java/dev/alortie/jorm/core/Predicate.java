@@ -0,0 +1,202 @@
+package dev.alortie.jorm.core;
+
+import dev.alortie.jorm.metadata.TableMeta;
+import dev.alortie.jorm.utils.InLists;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A condition for {@link QueryBuilder#where(Predicate)}, e.g.
+ * {@code where(Predicate.or(Predicate.in("user_id", ids), Predicate.isNull("user_id")))}.
+ * Fields are column names, as in {@link QueryBuilder#where(String, String, Object)}.
+ * Value lists are padded to bucket sizes (see {@link InLists}) so they share prepared statements,
+ * and lists longer than the adapter's IN-list limit are split into several IN lists.
+ */
+public abstract class Predicate {
+
+    // Append this predicate's SQL, qualifying columns with alias when it is not null, and its parameters to params
+    abstract void appendTo(StringBuilder sql, String alias, List<Object> params);
+
+    // Add the tables this predicate's subqueries read, whose writes change what it matches
+    void collectTables(Set<TableMeta<?>> tables) {
+    }
+
+    // field op ?, with op one of =, <>, <, <=, >, >=, LIKE, ...
+    public static Predicate compare(String field, String op, Object value) {
+        return new Predicate() {
+            @Override
+            void appendTo(StringBuilder sql, String alias, List<Object> params) {
+                sql.append(QueryBuilder.qualify(alias, field)).append(" ").append(op).append(" ?");
+                params.add(value);
+            }
+        };
+    }
+
+    public static Predicate eq(String field, Object value) {
+        return compare(field, "=", value);
+    }
+
+    // field IN (...); matches nothing when values is empty
+    public static Predicate in(String field, Collection<?> values) {
+        return new ValueList(field, values, false);
+    }
+
+    // field NOT IN (...); matches everything when values is empty
+    public static Predicate notIn(String field, Collection<?> values) {
+        return new ValueList(field, values, true);
+    }
+
+    // field IN (SELECT ...), where subquery has select() of exactly one column
+    public static Predicate in(String field, QueryBuilder<?> subquery) {
+        return subquery(field, "IN", subquery);
+    }
+
+    public static Predicate notIn(String field, QueryBuilder<?> subquery) {
+        return subquery(field, "NOT IN", subquery);
+    }
+
+    // low <= field <= high
+    public static Predicate between(String field, Object low, Object high) {
+        return new Predicate() {
+            @Override
+            void appendTo(StringBuilder sql, String alias, List<Object> params) {
+                sql.append(QueryBuilder.qualify(alias, field)).append(" BETWEEN ? AND ?");
+                params.add(low);
+                params.add(high);
+            }
+        };
+    }
+
+    public static Predicate isNull(String field) {
+        return new Predicate() {
+            @Override
+            void appendTo(StringBuilder sql, String alias, List<Object> params) {
+                sql.append(QueryBuilder.qualify(alias, field)).append(" IS NULL");
+            }
+        };
+    }
+
+    public static Predicate isNotNull(String field) {
+        return new Predicate() {
+            @Override
+            void appendTo(StringBuilder sql, String alias, List<Object> params) {
+                sql.append(QueryBuilder.qualify(alias, field)).append(" IS NOT NULL");
+            }
+        };
+    }
+
+    // Matches when all predicates match
+    public static Predicate and(Predicate... predicates) {
+        return new Group(" AND ", predicates);
+    }
+
+    // Matches when any predicate matches
+    public static Predicate or(Predicate... predicates) {
+        return new Group(" OR ", predicates);
+    }
+
+    public static Predicate not(Predicate predicate) {
+        return new Predicate() {
+            @Override
+            void appendTo(StringBuilder sql, String alias, List<Object> params) {
+                sql.append("NOT (");
+                predicate.appendTo(sql, alias, params);
+                sql.append(")");
+            }
+
+            @Override
+            void collectTables(Set<TableMeta<?>> tables) {
+                predicate.collectTables(tables);
+            }
+        };
+    }
+
+    private static Predicate subquery(String field, String op, QueryBuilder<?> subquery) {
+        return new Predicate() {
+            @Override
+            void appendTo(StringBuilder sql, String alias, List<Object> params) {
+                sql.append(QueryBuilder.qualify(alias, field)).append(" ").append(op).append(" (");
+                sql.append(subquery.subquery(params)).append(")");
+            }
+
+            @Override
+            void collectTables(Set<TableMeta<?>> tables) {
+                subquery.collectTables(tables);
+            }
+        };
+    }
+
+    // Predicates joined by AND or OR, in parentheses
+    private static class Group extends Predicate {
+        private final String separator;
+        private final List<Predicate> predicates;
+
+        Group(String separator, Predicate[] predicates) {
+            if (predicates.length == 0) {
+                throw new IllegalArgumentException("Cannot combine zero predicates");
+            }
+            this.separator = separator;
+            this.predicates = new ArrayList<>(Arrays.asList(predicates));
+        }
+
+        @Override
+        void appendTo(StringBuilder sql, String alias, List<Object> params) {
+            sql.append("(");
+            for (int i = 0; i < predicates.size(); i++) {
+                if (i > 0) sql.append(separator);
+                predicates.get(i).appendTo(sql, alias, params);
+            }
+            sql.append(")");
+        }
+
+        @Override
+        void collectTables(Set<TableMeta<?>> tables) {
+            for (Predicate predicate : predicates) {
+                predicate.collectTables(tables);
+            }
+        }
+    }
+
+    // IN or NOT IN a list of values, deduplicated, padded to its bucket and chunked at the adapter's limit.
+    // Bind markers are refused: deduplication and padding would change how many there are.
+    private static class ValueList extends Predicate {
+        private final String field;
+        private final List<Object> values;
+        private final boolean negated;
+
+        ValueList(String field, Collection<?> values, boolean negated) {
+            for (Object value : values) {
+                if (PreparedQuery.isBind(value)) {
+                    throw new IllegalArgumentException("IN lists cannot hold PreparedQuery.bind() markers, only concrete values");
+                }
+            }
+            this.field = field;
+            this.values = new ArrayList<>(new LinkedHashSet<>(values));
+            this.negated = negated;
+        }
+
+        @Override
+        void appendTo(StringBuilder sql, String alias, List<Object> params) {
+            if (values.isEmpty()) {
+                sql.append(negated ? "1=1" : "1=0");
+                return;
+            }
+            int max = JORM.getInstance().getAdapter().getMaxInListSize();
+            String column = QueryBuilder.qualify(alias, field);
+            boolean chunked = values.size() > max;
+            if (chunked) sql.append("(");
+            for (int start = 0; start < values.size(); start += max) {
+                if (start > 0) sql.append(negated ? " AND " : " OR ");
+                Object[] chunk = InLists.pad(values.subList(start, Math.min(start + max, values.size())), max);
+                sql.append(column).append(negated ? " NOT IN (" : " IN (").append(InLists.placeholders(chunk.length)).append(")");
+                params.addAll(Arrays.asList(chunk));
+            }
+            if (chunked) sql.append(")");
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package dev.alortie.jorm.core;
+
+import dev.alortie.jorm.cache.QueryCache;
+import dev.alortie.jorm.metadata.ColumnMeta;
+import dev.alortie.jorm.metadata.TableMeta;
+import dev.alortie.jorm.utils.JoinedSelect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query compiled by {@link QueryBuilder#compile()}: its SQL is built once, and each execution only binds values,
+ * so the connection's statement cache finds the same statement every time.
+ * Values passed as {@link #bind()} to where() are supplied per execution, in order; all others are fixed.
+ * Instances are immutable and may be shared between threads.
+ *
+ * @param <T> The queried entity type.
+ */
+public final class PreparedQuery<T> {
+    private static final Object BIND = new Object() {
+        @Override
+        public String toString() {
+            return "?";
+        }
+    };
+
+    private final TableMeta<T> table;
+    private final List<TableMeta<?>> readTables; // table and those read by subqueries; a write to any drops cached results
+    private final String whereClause;
+    private final String sql; // the complete SELECT, or null when fetch paths are joined by the adapter
+    private final JoinedSelect<T> joined; // the adapter's plan for fetch paths, or null without them
+    private final List<String> fetchPaths;
+    private final Object[] params;
+    private final int[] slots; // indexes of params supplied at execution
+    private final long cacheTtlSeconds;
+
+    PreparedQuery(TableMeta<T> table, Collection<TableMeta<?>> readTables, String whereClause, List<String> fetchPaths,
+                  List<Object> params, long cacheTtlSeconds) {
+        this.table = table;
+        this.readTables = new ArrayList<>(readTables);
+        this.whereClause = whereClause;
+        this.fetchPaths = Collections.unmodifiableList(new ArrayList<>(fetchPaths));
+        this.sql = fetchPaths.isEmpty() ? table.getTemplates().getSelectAllSql() + " WHERE " + whereClause : null;
+        this.joined = fetchPaths.isEmpty() ? null : JORM.getInstance().getAdapter().planJoined(table, whereClause, this.fetchPaths);
+        this.params = params.toArray();
+        this.slots = new int[Collections.frequency(params, BIND)];
+        for (int i = 0, slot = 0; i < this.params.length; i++) {
+            if (this.params[i] == BIND) slots[slot++] = i;
+        }
+        this.cacheTtlSeconds = cacheTtlSeconds;
+    }
+
+    /**
+     * Placeholder for a value supplied at execution, e.g. {@code where("username", "=", PreparedQuery.bind())}.
+     *
+     * @return The bind marker.
+     */
+    public static Object bind() {
+        return BIND;
+    }
+
+    static boolean isBind(Object value) {
+        return value == BIND;
+    }
+
+    /**
+     * Run the query with values for its bind markers.
+     *
+     * @param binds One value per bind marker, in the order they were added.
+     * @return The matching entities, or null when none match.
+     */
+    public List<T> execute(Object... binds) {
+        if (binds.length != slots.length) {
+            throw new IllegalArgumentException("Query takes " + slots.length + " bind values, got " + binds.length);
+        }
+        Object[] values = params;
+        if (slots.length > 0) {
+            values = params.clone();
+            for (int i = 0; i < slots.length; i++) {
+                values[slots[i]] = binds[i];
+            }
+        }
+        return run(values);
+    }
+
+    public int getBindCount() {
+        return slots.length;
+    }
+
+    // Run with every parameter bound, going through the query cache when the query is cacheable
+    private List<T> run(Object[] values) {
+        if (cacheTtlSeconds == 0) {
+            return select(values);
+        }
+
+        QueryCache queryCache = JORM.getInstance().getQueryCache();
+        List<Object> key = Arrays.asList(table.getTableName(), whereClause, fetchPaths, Arrays.asList(values));
+        long writeStamp = writeStamp(); // taken first, so a write during the query invalidates the result
+        List<Object> ids = queryCache.get(key, writeStamp);
+        if (ids != null) {
+            return loadInOrder(ids);
+        }
+
+        List<T> results = select(values);
+        List<Object> primaryKeys = new ArrayList<>();
+        if (results != null) {
+            ColumnMeta primaryKey = table.getPrimaryKeyColumn();
+            for (T result : results) {
+                primaryKeys.add(primaryKey.getValue(result));
+            }
+        }
+        queryCache.put(key, primaryKeys, writeStamp, cacheTtlSeconds);
+        return results;
+    }
+
+    // Sum of the read tables' write stamps, which only grow, so it changes with a write to any of them
+    private long writeStamp() {
+        long stamp = 0;
+        for (TableMeta<?> readTable : readTables) {
+            stamp += readTable.getWriteStamp();
+        }
+        return stamp;
+    }
+
+    private List<T> select(Object[] values) {
+        if (joined != null) {
+            return JORM.getInstance().getAdapter().selectJoined(joined, values);
+        }
+        List<T> results = JORM.getInstance().getAdapter().select(table, sql, values);
+        return results.isEmpty() ? null : results;
+    }
+
+    // Load a cached result by primary key, keeping the original order
+    private List<T> loadInOrder(List<Object> ids) {
+        if (ids.isEmpty()) return null;
+        ColumnMeta primaryKey = table.getPrimaryKeyColumn();
+        Map<Object, T> byKey = new HashMap<>();
+        for (T entity : table.selectByIds(ids)) {
+            byKey.put(primaryKey.getValue(entity), entity);
+        }
+        List<T> results = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            T entity = byKey.get(id);
+            if (entity != null) results.add(entity);
+        }
+        return results.isEmpty() ? null : results;
+    }
+
+    @Override
+    public String toString() {
+        return sql != null ? sql : joined.getSql();
+    }
+}
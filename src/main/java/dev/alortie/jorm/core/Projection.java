@@ -0,0 +1,308 @@
+package dev.alortie.jorm.core;
+
+import dev.alortie.jorm.metadata.ColumnMeta;
+import dev.alortie.jorm.metadata.TableMeta;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps projected rows onto a record, a DTO or a single value.
+ * The mapping is worked out once per target class and column list:
+ * <ul>
+ *     <li>a JDK type such as String or Long takes the only selected column;</li>
+ *     <li>a record takes its components by name;</li>
+ *     <li>a class with one constructor taking as many arguments as there are columns takes them in select order;</li>
+ *     <li>any other class is built with its no-arg constructor, and its fields are set by name.</li>
+ * </ul>
+ * Names match a column's name or its entity field name, ignoring case and underscores, so userId matches user_id.
+ */
+class Projection<R> {
+    private static final Map<List<Object>, Projection<?>> projections = new ConcurrentHashMap<>();
+
+    private final Class<R> type;
+    private final MethodHandle constructor; // (Object[])Object; arguments in column order, or none when setters are used
+    private final MethodHandle[] setters;   // (Object,Object)void per column, null when built through the constructor
+    private final Class<?>[] targetTypes;   // the type each column is converted to
+    private final boolean scalar;
+
+    private Projection(Class<R> type, MethodHandle constructor, MethodHandle[] setters, Class<?>[] targetTypes, boolean scalar) {
+        this.type = type;
+        this.constructor = constructor;
+        this.setters = setters;
+        this.targetTypes = targetTypes;
+        this.scalar = scalar;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <R> Projection<R> of(Class<R> type, List<ColumnMeta> columns) {
+        List<Object> key = new ArrayList<>();
+        key.add(type);
+        for (ColumnMeta column : columns) {
+            key.add(column.getName());
+        }
+        return (Projection<R>) projections.computeIfAbsent(key, k -> create(type, columns));
+    }
+
+    /**
+     * Columns of a table that a target type can take when nothing was selected:
+     * every record component, or every field of a DTO that matches a column.
+     *
+     * @param type  The record or DTO class.
+     * @param table The queried table.
+     * @return The matching columns, in component or field order.
+     */
+    static List<ColumnMeta> columnsFor(Class<?> type, TableMeta<?> table) {
+        if (isScalar(type)) {
+            throw new IllegalArgumentException("Select the column to read into " + type.getSimpleName());
+        }
+        List<ColumnMeta> columns = new ArrayList<>();
+        if (type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                ColumnMeta column = find(table.getColumns(), component.getName());
+                if (column == null) {
+                    throw new IllegalArgumentException("No column of " + table.getTableName() + " matches " + type.getSimpleName() + "." + component.getName());
+                }
+                columns.add(column);
+            }
+        } else {
+            for (Field field : fields(type)) {
+                ColumnMeta column = find(table.getColumns(), field.getName());
+                if (column != null) columns.add(column);
+            }
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("No field of " + type.getSimpleName() + " matches a column of " + table.getTableName());
+        }
+        return columns;
+    }
+
+    @SuppressWarnings("unchecked")
+    R map(Object[] row) {
+        try {
+            if (scalar) {
+                return (R) convert(row[0], targetTypes[0]);
+            }
+            if (setters == null) {
+                Object[] args = new Object[row.length];
+                for (int i = 0; i < row.length; i++) {
+                    args[i] = convert(row[i], targetTypes[i]);
+                }
+                return type.cast(constructor.invokeExact(args));
+            }
+            Object result = constructor.invokeExact(new Object[0]);
+            for (int i = 0; i < row.length; i++) {
+                setters[i].invokeExact(result, convert(row[i], targetTypes[i]));
+            }
+            return type.cast(result);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Failed to create " + type.getName(), t);
+        }
+    }
+
+    private static <R> Projection<R> create(Class<R> type, List<ColumnMeta> columns) {
+        int count = columns.size();
+        if (isScalar(type)) {
+            if (count != 1) {
+                throw new IllegalArgumentException(type.getSimpleName() + " takes exactly one column, got " + count);
+            }
+            return new Projection<>(type, null, null, new Class<?>[]{type}, true);
+        }
+
+        MethodHandles.Lookup lookup = lookup(type);
+        try {
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                int[] argumentOf = new int[count]; // component receiving each column
+                Arrays.fill(argumentOf, -1);
+                for (int c = 0; c < components.length; c++) {
+                    parameterTypes[c] = components[c].getType();
+                    int index = indexOf(columns, components[c].getName());
+                    if (index < 0) {
+                        throw new IllegalArgumentException("No selected column matches " + type.getSimpleName() + "." + components[c].getName());
+                    }
+                    argumentOf[index] = c;
+                }
+                MethodHandle canonical = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes));
+                return positional(type, canonical, parameterTypes, argumentOf, columns);
+            }
+
+            Constructor<?> match = null;
+            for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+                if (candidate.getParameterCount() == count) {
+                    if (match != null) {
+                        match = null; // ambiguous; fall back to fields
+                        break;
+                    }
+                    match = candidate;
+                }
+            }
+            if (match != null && count > 0) {
+                int[] argumentOf = new int[count];
+                for (int i = 0; i < count; i++) argumentOf[i] = i;
+                return positional(type, lookup.unreflectConstructor(match), match.getParameterTypes(), argumentOf, columns);
+            }
+
+            MethodHandle noArg = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            MethodHandle[] setters = new MethodHandle[count];
+            Class<?>[] targetTypes = new Class<?>[count];
+            for (int i = 0; i < count; i++) {
+                Field field = null;
+                for (Field candidate : fields(type)) {
+                    if (matches(columns.get(i), candidate.getName())) field = candidate;
+                }
+                if (field == null) {
+                    throw new IllegalArgumentException(type.getSimpleName() + " has no field for column " + columns.get(i).getName());
+                }
+                setters[i] = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup()).unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                targetTypes[i] = field.getType();
+            }
+            return new Projection<>(type, MethodHandles.dropArguments(noArg, 0, Object[].class), setters, targetTypes, false);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(type.getName() + " needs an accessible constructor for the selected columns", e);
+        }
+    }
+
+    // A constructor fed one argument per column; argumentOf gives the parameter each column is passed as
+    private static <R> Projection<R> positional(Class<R> type, MethodHandle constructor, Class<?>[] parameterTypes, int[] argumentOf, List<ColumnMeta> columns) {
+        int count = columns.size();
+        if (parameterTypes.length != count) {
+            throw new IllegalArgumentException(type.getSimpleName() + " takes " + parameterTypes.length + " values, got " + count + " columns");
+        }
+        // Reorder parameters into column order, then take them as one array
+        int[] reorder = new int[count];
+        Class<?>[] targetTypes = new Class<?>[count];
+        for (int i = 0; i < count; i++) {
+            reorder[argumentOf[i]] = i;
+            targetTypes[i] = parameterTypes[argumentOf[i]];
+        }
+        MethodHandle inColumnOrder = MethodHandles.permuteArguments(
+                constructor.asType(MethodType.methodType(Object.class, parameterTypes)),
+                MethodType.methodType(Object.class, targetTypes), reorder);
+        MethodHandle spread = inColumnOrder.asType(MethodType.genericMethodType(count))
+                .asSpreader(Object[].class, count);
+        return new Projection<>(type, spread, null, targetTypes, false);
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access " + type.getName(), e);
+        }
+    }
+
+    // Instance fields of a class and its superclasses
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static int indexOf(List<ColumnMeta> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (matches(columns.get(i), name)) return i;
+        }
+        return -1;
+    }
+
+    private static ColumnMeta find(ColumnMeta[] columns, String name) {
+        for (ColumnMeta column : columns) {
+            if (matches(column, name)) return column;
+        }
+        return null;
+    }
+
+    private static boolean matches(ColumnMeta column, String name) {
+        String normalized = normalize(name);
+        return normalize(column.getName()).equals(normalized) || normalize(column.getFieldName()).equals(normalized);
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Values of JDK types map a single column directly instead of being treated as DTOs
+    private static boolean isScalar(Class<?> type) {
+        return type.isPrimitive() || type.isArray() || type.isEnum() || type.getName().startsWith("java.");
+    }
+
+    // Convert a JDBC value to the declared type, e.g. a BIGINT count to int or a DATETIME to LocalDateTime
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object convert(Object value, Class<?> target) {
+        if (value == null) {
+            if (!target.isPrimitive()) return null;
+            if (target == boolean.class) return false;
+            if (target == char.class) return '\0';
+            return convert(0, target);
+        }
+        Class<?> boxed = box(target);
+        if (boxed.isInstance(value)) return value;
+
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (boxed == Integer.class) return number.intValue();
+            if (boxed == Long.class) return number.longValue();
+            if (boxed == Double.class) return number.doubleValue();
+            if (boxed == Float.class) return number.floatValue();
+            if (boxed == Short.class) return number.shortValue();
+            if (boxed == Byte.class) return number.byteValue();
+            if (boxed == Boolean.class) return number.intValue() != 0;
+            if (boxed == BigDecimal.class) return new BigDecimal(number.toString());
+            if (boxed == BigInteger.class) return new BigDecimal(number.toString()).toBigInteger();
+        }
+        if (value instanceof Boolean && Number.class.isAssignableFrom(boxed)) {
+            return convert((Boolean) value ? 1 : 0, target);
+        }
+        if (value instanceof Timestamp) {
+            if (boxed == LocalDateTime.class) return ((Timestamp) value).toLocalDateTime();
+            if (boxed == Instant.class) return ((Timestamp) value).toInstant();
+        }
+        if (value instanceof java.sql.Date && boxed == LocalDate.class) return ((java.sql.Date) value).toLocalDate();
+        if (value instanceof Time && boxed == LocalTime.class) return ((Time) value).toLocalTime();
+        if (boxed.isEnum() && value instanceof String) return Enum.valueOf((Class<Enum>) boxed, (String) value);
+        if (boxed == String.class) return value.toString();
+
+        throw new IllegalArgumentException("Cannot map " + value.getClass().getName() + " to " + target.getName());
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        return Character.class;
+    }
+}
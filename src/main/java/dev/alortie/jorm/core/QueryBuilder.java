@@ -1,35 +1,62 @@
 package dev.alortie.jorm.core;
 
+import dev.alortie.jorm.metadata.ColumnMeta;
 import dev.alortie.jorm.metadata.TableMeta;
+import dev.alortie.jorm.utils.JORMAdapter;
 import dev.alortie.jorm.utils.Order;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class QueryBuilder<T>  {
     private TableMeta<T> table;
-    private List<String> conditions = new ArrayList<>();
-    private List<Object> params = new ArrayList<>();
-    private String orderBy = null;
+    private List<Predicate> conditions = new ArrayList<>();
+    private List<String> fetchPaths = new ArrayList<>();
+    private List<ColumnMeta> selected = new ArrayList<>();
+    private String orderByField = null;
+    private Order order = Order.ASC;
     private int limit = -1;
     private int offset = -1;
+    private T afterEntity = null;
+    private String afterCursor = null;
+    private long cacheTtlSeconds = 0;
 
     public QueryBuilder(TableMeta<T> table){
         this.table = table;
     }
 
     public QueryBuilder<T> where(String field, String op, Object value) {
-        conditions.add(field + " " + op + " ?");
-        params.add(value);
+        return where(Predicate.compare(field, op, value));
+    }
+
+    /**
+     * Add a predicate such as {@code Predicate.in("id", ids)} or {@code Predicate.or(...)}; predicates are ANDed.
+     *
+     * @param predicate The predicate to add.
+     * @return This builder.
+     */
+    public QueryBuilder<T> where(Predicate predicate) {
+        conditions.add(predicate);
         return this;
     }
 
+    public QueryBuilder<T> and(Predicate predicate){
+        return where(predicate);
+    }
+
     public QueryBuilder<T> and(String field, String op, Object value){
         return where(field, op, value);
     }
 
     public QueryBuilder<T> orderBy(String field, Order order){
-        this.orderBy = field + " " + order.name();
+        this.orderByField = field;
+        this.order = order;
         return this;
     }
 
@@ -43,23 +70,484 @@ public class QueryBuilder<T>  {
         return this;
     }
 
+    /**
+     * Start after the given entity in the current ordering (keyset pagination).
+     * Rows are ordered by the orderBy column, then the primary key, which should be set on the entity.
+     *
+     * @param entity The last entity of the previous page.
+     * @return This builder.
+     */
+    public QueryBuilder<T> after(T entity){
+        this.afterEntity = entity;
+        this.afterCursor = null;
+        return this;
+    }
+
+    /**
+     * Start after the position recorded in a cursor from {@link Page#getNextCursor()}.
+     * The query must use the same orderBy as the one that produced the cursor.
+     *
+     * @param cursor The cursor of the previous page, or null for the first page.
+     * @return This builder.
+     */
+    public QueryBuilder<T> after(String cursor){
+        this.afterCursor = cursor;
+        this.afterEntity = null;
+        return this;
+    }
+
+    /**
+     * Reuse the result of an identical earlier query (same conditions, parameters, order and limit)
+     * for up to ttlSeconds, until JORM next writes to this table or one a subquery reads.
+     * Only primary keys are cached; entities are then loaded by key, so pair this with a session or a @Cacheable entity.
+     *
+     * @param ttlSeconds How long a result may be reused.
+     * @return This builder.
+     */
+    public QueryBuilder<T> cacheable(long ttlSeconds){
+        if (ttlSeconds < 1) {
+            throw new IllegalArgumentException("Cache TTL must be >= 1 second");
+        }
+        this.cacheTtlSeconds = ttlSeconds;
+        return this;
+    }
+
+    /**
+     * Load a @ManyToOne relationship in the same query with a LEFT JOIN.
+     * Paths are field names, dotted for nested relationships, e.g. "post.author" from Comment.
+     *
+     * @param path The relationship path to fetch.
+     * @return This builder.
+     */
+    public QueryBuilder<T> fetch(String path){
+        fetchPaths.add(path);
+        return this;
+    }
+
+    /**
+     * Read only these columns, to be mapped with {@link #as(Class)} instead of loading entities.
+     * Names are column names or entity field names.
+     *
+     * @param fields The columns to read, in the order a positional constructor takes them.
+     * @return This builder.
+     */
+    public QueryBuilder<T> select(String... fields){
+        for (String field : fields) {
+            selected.add(column(field));
+        }
+        return this;
+    }
+
+    /**
+     * Start a set-based UPDATE of every matching row, e.g. {@code update().set("status", "archived").execute()}.
+     * OrderBy and limit apply as in MySQL's single-table UPDATE; offset and after() do not.
+     *
+     * @return An update to add assignments to.
+     */
+    public BulkUpdate<T> update(){
+        return new BulkUpdate<>(this);
+    }
+
+    /**
+     * Delete every matching row with a single DELETE statement, without loading them.
+     * Cached rows, cached queries and session instances of the table are dropped afterwards.
+     * OrderBy and limit apply as in MySQL's single-table DELETE; offset and after() do not.
+     *
+     * @return The number of rows deleted.
+     */
+    public int delete(){
+        List<Object> queryParams = new ArrayList<>();
+        String whereClause = writeClause(queryParams);
+        flushSession();
+        return JORM.getInstance().getAdapter().deleteWhere(table, whereClause, queryParams.toArray());
+    }
+
+    int executeUpdate(Map<ColumnMeta, Object> assignments){
+        List<String> columns = new ArrayList<>();
+        List<Object> queryParams = new ArrayList<>();
+        for (Map.Entry<ColumnMeta, Object> assignment : assignments.entrySet()) {
+            columns.add(assignment.getKey().getName());
+            queryParams.add(columnValue(assignment.getKey(), assignment.getValue()));
+        }
+        String whereClause = writeClause(queryParams);
+        flushSession();
+        return JORM.getInstance().getAdapter().updateWhere(table, columns, whereClause, queryParams.toArray());
+    }
+
+    // Clause for UPDATE and DELETE: conditions, then the ORDER BY and LIMIT that MySQL allows on single-table writes
+    private String writeClause(List<Object> queryParams){
+        if (offset != -1 || isKeyset()) {
+            throw new IllegalStateException("Bulk updates and deletes cannot use offset or after()");
+        }
+        StringBuilder whereClause = new StringBuilder(conditionClause(null, queryParams));
+        if (orderByField != null) {
+            whereClause.append(" ORDER BY ").append(orderByField).append(" ").append(order.getSql());
+        }
+        if (limit != -1) {
+            whereClause.append(" LIMIT ").append(limit);
+        }
+        return whereClause.toString();
+    }
+
+    // Write the session's queued changes first, so the statement sees them and a later flush cannot undo it
+    private void flushSession(){
+        Session session = JORM.getInstance().getCurrentSession();
+        if (session != null && session.getPendingCount() > 0) {
+            session.flush();
+        }
+    }
+
+    /**
+     * Group matching rows by these columns; aggregates are then computed per group.
+     *
+     * @param fields Column names or entity field names.
+     * @return A grouped query whose terminals return one entry per group.
+     */
+    public GroupBy<T> groupBy(String... fields){
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("groupBy needs at least one column");
+        }
+        List<ColumnMeta> columns = new ArrayList<>();
+        for (String field : fields) {
+            columns.add(column(field));
+        }
+        return new GroupBy<>(this, columns);
+    }
+
+    /**
+     * Count matching rows in the database. Ordering, limit, offset and after() do not apply to aggregates.
+     *
+     * @return The number of matching rows.
+     */
+    public long count(){
+        return ((Number) aggregate(Collections.singletonList("COUNT(*)"), Collections.emptyList(), "").get(0)[0]).longValue();
+    }
+
+    /**
+     * Check whether any row matches, reading at most one row.
+     *
+     * @return True if a row matches.
+     */
+    public boolean exists(){
+        return !aggregate(Collections.singletonList("1"), Collections.emptyList(), " LIMIT 1").isEmpty();
+    }
+
+    /**
+     * Sum a numeric column over matching rows.
+     *
+     * @param field Column name or entity field name.
+     * @return The sum as returned by the driver (e.g. BigDecimal for integer columns), or null when no row matches.
+     */
+    public Number sum(String field){
+        return (Number) aggregateOf("SUM", field);
+    }
+
+    /**
+     * Average a numeric column over matching rows.
+     *
+     * @param field Column name or entity field name.
+     * @return The average, or null when no row matches.
+     */
+    public Double avg(String field){
+        Number average = (Number) aggregateOf("AVG", field);
+        return average == null ? null : average.doubleValue();
+    }
+
+    /**
+     * Smallest value of a column over matching rows, converted to the field's type (the key for a foreign key).
+     *
+     * @param field Column name or entity field name.
+     * @return The smallest value, or null when no row matches.
+     */
+    public <V> V min(String field){
+        return minMax("MIN", field);
+    }
+
+    /**
+     * Largest value of a column over matching rows, converted to the field's type (the key for a foreign key).
+     *
+     * @param field Column name or entity field name.
+     * @return The largest value, or null when no row matches.
+     */
+    public <V> V max(String field){
+        return minMax("MAX", field);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V minMax(String function, String field){
+        ColumnMeta column = column(field);
+        Object value = aggregateOf(function, field);
+        return (V) (value == null || column.isForeignKey() ? value : Projection.convert(value, column.getType()));
+    }
+
+    private Object aggregateOf(String function, String field){
+        String expression = function + "(" + column(field).getName() + ")";
+        return aggregate(Collections.singletonList(expression), Collections.emptyList(), "").get(0)[0];
+    }
+
+    // Run SELECT expressions over the matching rows, grouped by groupColumns when there are any.
+    // Rows come back with the group values first, ordered by them, then the expression values.
+    List<Object[]> aggregate(List<String> expressions, List<ColumnMeta> groupColumns, String suffix){
+        List<Object> queryParams = new ArrayList<>();
+        StringBuilder whereClause = new StringBuilder(conditionClause(null, queryParams));
+        List<String> selectList = new ArrayList<>();
+        if (!groupColumns.isEmpty()) {
+            List<String> names = new ArrayList<>();
+            for (ColumnMeta column : groupColumns) {
+                names.add(column.getName());
+            }
+            whereClause.append(" GROUP BY ").append(String.join(", ", names))
+                    .append(" ORDER BY ").append(String.join(", ", names));
+            selectList.addAll(names);
+        }
+        selectList.addAll(expressions);
+        whereClause.append(suffix);
+        return JORM.getInstance().getAdapter().selectColumns(table, selectList, whereClause.toString(), queryParams.toArray());
+    }
+
+    // A column of the queried table, by column name or entity field name
+    ColumnMeta column(String field){
+        for (ColumnMeta column : table.getColumns()) {
+            if (column.getName().equals(field) || column.getFieldName().equals(field)) return column;
+        }
+        throw new IllegalArgumentException("No column " + field + " in " + table.getTableName());
+    }
+
+    /**
+     * Run the query reading only the selected columns, or those matching the type's fields when none were selected,
+     * and map each row onto a record, a DTO or, for a single column, a value such as a String.
+     * Nothing is hydrated: foreign keys come back as keys, and the session and caches are not involved.
+     *
+     * @param type The class to map rows to.
+     * @return The mapped rows, or null when none match.
+     */
+    public <R> List<R> as(Class<R> type){
+        if (!fetchPaths.isEmpty()) {
+            throw new IllegalStateException("Projections cannot fetch relationships");
+        }
+        List<ColumnMeta> columns = selected.isEmpty() ? Projection.columnsFor(type, table) : selected;
+        Projection<R> projection = Projection.of(type, columns);
+
+        List<String> names = new ArrayList<>(columns.size());
+        for (ColumnMeta column : columns) {
+            names.add(column.getName());
+        }
+        List<Object> queryParams = new ArrayList<>();
+        String whereClause = buildWhereClause(null, limit, isKeyset(), queryParams);
+        List<Object[]> rows = JORM.getInstance().getAdapter().selectColumns(table, names, whereClause, queryParams.toArray());
+        if (rows.isEmpty()) return null;
+
+        List<R> results = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            results.add(projection.map(row));
+        }
+        return results;
+    }
+
     public List<T> findAll() {
-        return JORM.getInstance().getAdapter().selectWhere(table, buildWhereClause(), params.toArray());
+        return find(limit, isKeyset());
     }
 
-    private String buildWhereClause() {
-        if (conditions.isEmpty()) return "1=1";
-        String whereClause = String.join(" AND ", conditions);
-        if (orderBy != null) {
-            whereClause += " ORDER BY " + orderBy;
+    /**
+     * Read one page in keyset order: by the orderBy column and then the primary key, or by the primary key alone.
+     * Each page costs the same however deep it is, unlike OFFSET. The orderBy column should not be nullable.
+     *
+     * @param size The most items on the page.
+     * @return The page, with a cursor for the next one when more rows follow.
+     */
+    public Page<T> page(int size){
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be >= 1");
+        }
+        if (offset != -1) {
+            throw new IllegalStateException("Keyset pages cannot be combined with offset");
+        }
+        List<T> items = find(size + 1, true); // one extra row tells whether there is a next page
+        if (items == null) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        if (items.size() <= size) {
+            return new Page<>(items, null);
+        }
+        items = new ArrayList<>(items.subList(0, size));
+        return new Page<>(items, KeysetCursor.encode(ordering(), keysetValues(items.get(size - 1))));
+    }
+
+    /**
+     * Build this query's SQL once for repeated execution. Values given as {@link PreparedQuery#bind()}
+     * are supplied to each {@link PreparedQuery#execute(Object...)}; the builder can be discarded.
+     *
+     * @return An immutable, thread-safe compiled query.
+     */
+    public PreparedQuery<T> compile(){
+        return prepare(limit, isKeyset());
+    }
+
+    private List<T> find(int limit, boolean keyset) {
+        return prepare(limit, keyset).execute();
+    }
+
+    private PreparedQuery<T> prepare(int limit, boolean keyset) {
+        requireEntities();
+        List<Object> queryParams = new ArrayList<>();
+        String whereClause = buildWhereClause(fetchPaths.isEmpty() ? null : JORMAdapter.ROOT_ALIAS, limit, keyset, queryParams);
+        Set<TableMeta<?>> tables = new LinkedHashSet<>();
+        collectTables(tables);
+        return new PreparedQuery<>(table, tables, whereClause, fetchPaths, queryParams, cacheTtlSeconds);
+    }
+
+    // Partially loaded entities would be written back with their unselected columns blank
+    private void requireEntities() {
+        if (!selected.isEmpty()) {
+            throw new IllegalStateException("A query with select() must be read with as()");
+        }
+    }
+
+    private boolean isKeyset() {
+        return afterEntity != null || afterCursor != null;
+    }
+
+    // Sort columns of a keyset query: the orderBy column, if any, then the primary key
+    private List<ColumnMeta> keysetColumns() {
+        List<ColumnMeta> columns = new ArrayList<>();
+        ColumnMeta primaryKey = table.getPrimaryKeyColumn();
+        if (orderByField != null && !orderByField.equals(primaryKey.getName())) {
+            ColumnMeta orderColumn = null;
+            for (ColumnMeta column : table.getColumns()) {
+                if (column.getName().equals(orderByField)) orderColumn = column;
+            }
+            if (orderColumn == null) {
+                throw new IllegalArgumentException("Keyset pagination needs orderBy on a column of " + table.getTableName() + ", got " + orderByField);
+            }
+            columns.add(orderColumn);
+        }
+        columns.add(primaryKey);
+        return columns;
+    }
+
+    // Identifies the ordering a cursor belongs to
+    private String ordering() {
+        StringBuilder ordering = new StringBuilder(table.getTableName());
+        for (ColumnMeta column : keysetColumns()) {
+            ordering.append(",").append(column.getName());
+        }
+        return ordering.append(" ").append(order.getSql()).toString();
+    }
+
+    private Object[] keysetValues(T entity) {
+        List<ColumnMeta> columns = keysetColumns();
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columnValue(columns.get(i), columns.get(i).getValue(entity));
+        }
+        return values;
+    }
+
+    // The value stored for a column: a referenced entity or Ref becomes its primary key
+    static Object columnValue(ColumnMeta column, Object value) {
+        if (value instanceof Ref) {
+            return ((Ref<?>) value).getId();
+        }
+        if (column.isForeignKey() && value != null && column.getReferencedEntity().isInstance(value)) {
+            return JORM.getInstance().repository(value.getClass()).getPrimaryKeyColumn().getValue(value);
+        }
+        return value;
+    }
+
+    /**
+     * Read matching rows on demand instead of loading them into a list.
+     * The stream holds a connection until it is closed or read to the end; fetch paths are loaded in batches.
+     * Inside a transaction it reads on the transaction's connection and sees its writes.
+     *
+     * @return A stream to close after use.
+     */
+    public Stream<T> stream() {
+        requireEntities();
+        List<Object> queryParams = new ArrayList<>();
+        String whereClause = buildWhereClause(null, limit, isKeyset(), queryParams);
+        return JORM.getInstance().getAdapter().stream(table, whereClause, queryParams.toArray());
+    }
+
+    // Build the clause following WHERE, qualifying columns with alias when the query joins other tables.
+    // A keyset query orders by the orderBy column and then the primary key; its seek values are appended to queryParams.
+    private String buildWhereClause(String alias, int limit, boolean keyset, List<Object> queryParams) {
+        StringBuilder whereClause = new StringBuilder();
+        if (!conditions.isEmpty() || !isKeyset()) {
+            whereClause.append(conditionClause(alias, queryParams));
+        }
+
+        if (keyset) {
+            List<String> names = new ArrayList<>();
+            for (ColumnMeta column : keysetColumns()) {
+                names.add(qualify(alias, column.getName()));
+            }
+            if (isKeyset()) {
+                // Row comparison (col, pk) > (?, ?) seeks straight to the position on an index over the same columns
+                Object[] values = afterEntity != null ? keysetValues(afterEntity) : KeysetCursor.decode(ordering(), afterCursor);
+                if (!conditions.isEmpty()) whereClause.append(" AND ");
+                String comparison = order == Order.DESC ? " < " : " > ";
+                if (names.size() == 1) {
+                    whereClause.append(names.get(0)).append(comparison).append("?");
+                } else {
+                    whereClause.append("(").append(String.join(", ", names)).append(")").append(comparison)
+                            .append("(").append(String.join(", ", Collections.nCopies(names.size(), "?"))).append(")");
+                }
+                queryParams.addAll(Arrays.asList(values));
+            }
+
+            whereClause.append(" ORDER BY ");
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) whereClause.append(", ");
+                whereClause.append(names.get(i)).append(" ").append(order.getSql());
+            }
+        } else if (orderByField != null) {
+            whereClause.append(" ORDER BY ").append(qualify(alias, orderByField)).append(" ").append(order.getSql());
         }
         if (limit != -1) {
-            whereClause += " LIMIT " + limit;
+            whereClause.append(" LIMIT ").append(limit);
         }
         if (offset != -1) {
-            whereClause += " OFFSET " + offset;
+            whereClause.append(" OFFSET ").append(offset);
+        }
+        return whereClause.toString();
+    }
+
+    // The conditions joined with AND, or 1=1 when there are none; their parameters are appended to queryParams
+    private String conditionClause(String alias, List<Object> queryParams) {
+        if (conditions.isEmpty()) return "1=1";
+        StringBuilder clause = new StringBuilder();
+        for (int i = 0; i < conditions.size(); i++) {
+            if (i > 0) clause.append(" AND ");
+            conditions.get(i).appendTo(clause, alias, queryParams);
         }
-        return whereClause;
+        return clause.toString();
+    }
+
+    /**
+     * SQL of this query as a subquery reading its one selected column, for {@link Predicate#in(String, QueryBuilder)}.
+     * Only conditions apply; MySQL does not allow LIMIT in an IN subquery.
+     */
+    String subquery(List<Object> queryParams) {
+        if (selected.size() != 1) {
+            throw new IllegalStateException("A subquery must select() exactly one column");
+        }
+        if (limit != -1 || offset != -1 || isKeyset()) {
+            throw new IllegalStateException("A subquery cannot use limit, offset or after()");
+        }
+        return "SELECT " + selected.get(0).getName() + " FROM " + table.getTemplates().getQualifiedTableName() +
+                " WHERE " + conditionClause(null, queryParams);
+    }
+
+    // This query's table and those its subqueries read
+    void collectTables(Set<TableMeta<?>> tables) {
+        tables.add(table);
+        for (Predicate condition : conditions) {
+            condition.collectTables(tables);
+        }
+    }
+
+    static String qualify(String alias, String field) {
+        return alias == null ? field : alias + "." + field;
     }
 
 }
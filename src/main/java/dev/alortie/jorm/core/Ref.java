@@ -0,0 +1,88 @@
+package dev.alortie.jorm.core;
+
+/**
+ * Reference to an entity through a @ManyToOne field declared as {@code Ref<T>}.
+ * A lazy reference only holds the foreign key and loads the entity on the first call to {@link #get()}.
+ *
+ * @param <T> The referenced entity type.
+ */
+public class Ref<T> {
+    private final Class<T> type;
+    private final Object id;
+    private volatile T value;
+    private volatile boolean loaded;
+
+    private Ref(Class<T> type, Object id, T value, boolean loaded) {
+        this.type = type;
+        this.id = id;
+        this.value = value;
+        this.loaded = loaded;
+    }
+
+    /**
+     * Reference an entity that is already in memory, e.g. when building a new entity to insert.
+     *
+     * @param entity The referenced entity.
+     * @return A loaded reference.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Ref<T> of(T entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("Cannot reference null; leave the field null instead");
+        }
+        return new Ref<>((Class<T>) entity.getClass(), null, entity, true);
+    }
+
+    /**
+     * Reference an entity by primary key without loading it.
+     *
+     * @param type The referenced entity class.
+     * @param id   The referenced primary key.
+     * @return An unloaded reference.
+     */
+    public static <T> Ref<T> to(Class<T> type, Object id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Cannot reference a null key; leave the field null instead");
+        }
+        return new Ref<>(type, id, null, false);
+    }
+
+    // Primary key of the referenced entity, read from the entity itself once loaded
+    public Object getId() {
+        if (loaded && value != null) {
+            return JORM.getInstance().repository(type).getPrimaryKeyColumn().getValue(value);
+        }
+        return id;
+    }
+
+    // The referenced entity, loading it on first access
+    public T get() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    value = JORM.getInstance().repository(type).selectById(id);
+                    loaded = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    // The referenced entity if it has been loaded, without triggering a query
+    public T getIfLoaded() {
+        return loaded ? value : null;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return loaded ? "Ref{" + value + "}" : "Ref{" + type.getSimpleName() + "#" + id + "}";
+    }
+}
@@ -0,0 +1,204 @@
+package dev.alortie.jorm.core;
+
+import dev.alortie.jorm.metadata.ColumnMeta;
+import dev.alortie.jorm.metadata.TableMeta;
+import dev.alortie.jorm.utils.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit of work holding an identity map of the entities loaded while it is open.
+ * A session is bound to the thread that opened it: every load on that thread returns the
+ * instance already in the map for a (class, primary key) instead of building a new one,
+ * and lookups by primary key that hit the map skip the database entirely.
+ * Open one per request or job with {@link JORM#openSession()} and close it when done.
+ * <p>
+ * A session is also a unit of work: {@link #persist}, {@link #update} and {@link #remove} only queue
+ * changes, and {@link #flush()} writes them in one transaction as a few batched statements,
+ * inserting parents before children and deleting children before parents.
+ */
+public class Session implements AutoCloseable {
+    private final JORM jorm;
+    private final Map<Class<?>, Map<Object, Object>> entities = new HashMap<>();
+    private boolean open = true;
+
+    private enum Operation { PERSIST, UPDATE, REMOVE }
+
+    // Pending changes by entity identity, and the order they were first queued in
+    private final Map<Object, Operation> pending = new IdentityHashMap<>();
+    private final List<Object> pendingOrder = new ArrayList<>();
+
+    Session(JORM jorm) {
+        this.jorm = jorm;
+    }
+
+    /**
+     * Find an entity by primary key, from the identity map or else the database.
+     *
+     * @param entityClass The entity class.
+     * @param id          The primary key.
+     * @return The managed instance, or null if no row has that key.
+     */
+    public <T> T find(Class<T> entityClass, Object id) {
+        T entity = get(entityClass, id);
+        return entity != null ? entity : jorm.repository(entityClass).selectById(id);
+    }
+
+    // The managed instance for a primary key, without querying
+    public <T> T get(Class<T> entityClass, Object id) {
+        Map<Object, Object> byKey = entities.get(entityClass);
+        return byKey == null ? null : entityClass.cast(byKey.get(id));
+    }
+
+    public boolean contains(Class<?> entityClass, Object id) {
+        Map<Object, Object> byKey = entities.get(entityClass);
+        return byKey != null && byKey.containsKey(id);
+    }
+
+    // Register an instance under its primary key; used by loads and inserts
+    public void put(Class<?> entityClass, Object id, Object entity) {
+        entities.computeIfAbsent(entityClass, k -> new HashMap<>()).put(id, entity);
+    }
+
+    // Make an entity created outside the session (with its key set) the managed instance
+    public void attach(Object entity) {
+        Object id = jorm.repository(entity.getClass()).getPrimaryKeyColumn().getValue(entity);
+        put(entity.getClass(), id, entity);
+    }
+
+    public void evict(Class<?> entityClass, Object id) {
+        Map<Object, Object> byKey = entities.get(entityClass);
+        if (byKey != null) byKey.remove(id);
+    }
+
+    public void evict(Object entity) {
+        Object id = jorm.repository(entity.getClass()).getPrimaryKeyColumn().getValue(entity);
+        evict(entity.getClass(), id);
+    }
+
+    // Forget every instance of one entity class
+    public void evictAll(Class<?> entityClass) {
+        entities.remove(entityClass);
+    }
+
+    public void clear() {
+        entities.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<Object, Object> byKey : entities.values()) {
+            size += byKey.size();
+        }
+        return size;
+    }
+
+    // Queue an insert
+    public void persist(Object entity) {
+        queue(entity, Operation.PERSIST);
+    }
+
+    // Queue an update; an entity persisted in this unit of work is inserted with its latest state instead
+    public void update(Object entity) {
+        if (pending.get(entity) != Operation.PERSIST) {
+            queue(entity, Operation.UPDATE);
+        }
+    }
+
+    // Queue a delete; removing an entity persisted in this unit of work just forgets it
+    public void remove(Object entity) {
+        if (pending.get(entity) == Operation.PERSIST) {
+            pending.remove(entity);
+            // By identity, as equals() may be overridden; a later persist queues it again at the end
+            pendingOrder.removeIf(queued -> queued == entity);
+            return;
+        }
+        queue(entity, Operation.REMOVE);
+    }
+
+    private void queue(Object entity, Operation operation) {
+        if (!open) {
+            throw new IllegalStateException("Session is closed.");
+        }
+        jorm.repository(entity.getClass()); // fail now for classes that are not entities
+        if (pending.put(entity, operation) == null) {
+            pendingOrder.add(entity);
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Write all queued changes in one transaction: inserts in foreign key dependency order,
+     * then updates, then deletes in reverse dependency order, one batch per table and operation.
+     * The queue is cleared once the transaction commits. If it fails, the queue is kept and the
+     * rolled-back writes leave no trace on the entities' snapshots or this session, so flushing again retries them.
+     */
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        Map<Class<?>, List<Object>> persists = new LinkedHashMap<>();
+        Map<Class<?>, List<Object>> updates = new LinkedHashMap<>();
+        Map<Class<?>, List<Object>> removes = new LinkedHashMap<>();
+        for (Object entity : pendingOrder) {
+            Operation operation = pending.get(entity);
+            Map<Class<?>, List<Object>> target = operation == Operation.PERSIST ? persists
+                    : operation == Operation.UPDATE ? updates : removes;
+            target.computeIfAbsent(entity.getClass(), k -> new ArrayList<>()).add(entity);
+        }
+
+        List<TableMeta<?>> order = SchemaManager.sortByDependency(jorm.getEntities());
+        List<TableMeta<?>> reversed = new ArrayList<>(order);
+        Collections.reverse(reversed);
+
+        jorm.getAdapter().transaction(() -> {
+            for (TableMeta<?> table : order) {
+                List<Object> batch = persists.get(table.getEntityClass());
+                if (batch != null) jorm.getAdapter().insertBatch(table, batch);
+            }
+            for (TableMeta<?> table : order) {
+                List<Object> batch = updates.get(table.getEntityClass());
+                if (batch != null) jorm.getAdapter().updateBatch(table, batch);
+            }
+            for (TableMeta<?> table : reversed) {
+                List<Object> batch = removes.get(table.getEntityClass());
+                if (batch == null) continue;
+                ColumnMeta primaryKey = table.getPrimaryKeyColumn();
+                List<Object> ids = new ArrayList<>(batch.size());
+                for (Object entity : batch) {
+                    ids.add(primaryKey.getValue(entity));
+                }
+                jorm.getAdapter().deleteByIds(table, ids);
+            }
+        });
+
+        pending.clear();
+        pendingOrder.clear();
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    // Pending changes that were never flushed are discarded
+    @Override
+    public void close() {
+        if (!open) return;
+        open = false;
+        if (!pending.isEmpty()) {
+            Log.e("Session", "Closing session with " + pending.size() + " unflushed changes; they are discarded");
+            pending.clear();
+            pendingOrder.clear();
+        }
+        entities.clear();
+        jorm.unbindSession(this);
+    }
+}
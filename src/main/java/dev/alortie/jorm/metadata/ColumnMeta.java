@@ -1,5 +1,10 @@
 package dev.alortie.jorm.metadata;
 
+import dev.alortie.jorm.annotations.CascadeType;
+import dev.alortie.jorm.annotations.FetchType;
+
+import java.lang.invoke.MethodHandle;
+
 public class ColumnMeta {
     private String name;
     private String fieldName;
@@ -11,6 +16,13 @@ public class ColumnMeta {
     private boolean unique;
     private int length;
     Class<?> referencedEntity;
+    private FetchType fetchType = FetchType.DEFAULT;
+    private boolean reference; // foreign key field declared as Ref<T>
+    private CascadeType cascade = CascadeType.NONE;
+
+    // Field accessors resolved once, typed (Object)Object and (Object,Object)void
+    private MethodHandle getter;
+    private MethodHandle setter;
 
 
     public ColumnMeta(
@@ -116,4 +128,74 @@ public class ColumnMeta {
     public void setReferencedEntity(Class<?> referencedEntity) {
         this.referencedEntity = referencedEntity;
     }
+
+    public FetchType getFetchType() {
+        return fetchType;
+    }
+
+    public void setFetchType(FetchType fetchType) {
+        this.fetchType = fetchType;
+    }
+
+    public boolean isReference() {
+        return reference;
+    }
+
+    public void setReference(boolean reference) {
+        this.reference = reference;
+    }
+
+    public CascadeType getCascade() {
+        return cascade;
+    }
+
+    public void setCascade(CascadeType cascade) {
+        this.cascade = cascade;
+    }
+
+    public boolean cascadesPersist() {
+        return cascade == CascadeType.PERSIST || cascade == CascadeType.ALL;
+    }
+
+    public boolean cascadesUpdate() {
+        return cascade == CascadeType.UPDATE || cascade == CascadeType.ALL;
+    }
+
+    public void setAccessors(MethodHandle getter, MethodHandle setter) {
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * Read this column's field from an entity.
+     * For a foreign key this is the referenced entity, not its key.
+     *
+     * @param entity The entity to read from.
+     * @return The field value, boxed.
+     */
+    public Object getValue(Object entity) {
+        try {
+            return getter.invokeExact(entity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Failed to read field: " + fieldName, t);
+        }
+    }
+
+    /**
+     * Write this column's field on an entity.
+     *
+     * @param entity The entity to write to.
+     * @param value  The value to assign; unboxed for primitive fields.
+     */
+    public void setValue(Object entity, Object value) {
+        try {
+            setter.invokeExact(entity, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Failed to write field: " + fieldName, t);
+        }
+    }
 }
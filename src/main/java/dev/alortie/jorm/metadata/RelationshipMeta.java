@@ -1,5 +1,8 @@
 package dev.alortie.jorm.metadata;
 
+import dev.alortie.jorm.annotations.FetchType;
+
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 
 public class RelationshipMeta {
@@ -13,6 +16,11 @@ public class RelationshipMeta {
     private final String foreignKeyFieldName;
     private final Field field;
     private final Class<?> targetEntityClass;
+    private FetchType fetchType = FetchType.DEFAULT;
+
+    // Field accessors resolved once, typed (Object)Object and (Object,Object)void
+    private MethodHandle getter;
+    private MethodHandle setter;
 
     public RelationshipMeta(Type type, String foreignKeyFieldName, Field field, Class<?> targetEntityClass) {
         this.type = type;
@@ -37,4 +45,37 @@ public class RelationshipMeta {
         return targetEntityClass;
     }
 
+    public FetchType getFetchType() {
+        return fetchType;
+    }
+
+    public void setFetchType(FetchType fetchType) {
+        this.fetchType = fetchType;
+    }
+
+    public void setAccessors(MethodHandle getter, MethodHandle setter) {
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public Object getValue(Object entity) {
+        try {
+            return getter.invokeExact(entity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Failed to read field: " + field.getName(), t);
+        }
+    }
+
+    public void setValue(Object entity, Object value) {
+        try {
+            setter.invokeExact(entity, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Failed to write field: " + field.getName(), t);
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+package dev.alortie.jorm.metadata;
+
+/**
+ * SQL statements for a table, generated once when the table is registered.
+ * Each statement comes with the columns whose values it binds, in parameter order.
+ */
+public class SQLTemplates {
+    private final String qualifiedTableName;
+    private final String insertSql;
+    private final ColumnMeta[] insertColumns;
+    private final String updateSql;
+    private final ColumnMeta[] updateColumns;
+    private final String deleteSql;
+    private final String selectByIdSql;
+    private final String selectAllSql;
+    private final String upsertSql;
+    private final ColumnMeta[] upsertColumns;
+
+    public SQLTemplates(
+            String qualifiedTableName,
+            String insertSql,
+            ColumnMeta[] insertColumns,
+            String updateSql,
+            ColumnMeta[] updateColumns,
+            String deleteSql,
+            String selectByIdSql,
+            String selectAllSql,
+            String upsertSql,
+            ColumnMeta[] upsertColumns
+    ) {
+        this.qualifiedTableName = qualifiedTableName;
+        this.insertSql = insertSql;
+        this.insertColumns = insertColumns;
+        this.updateSql = updateSql;
+        this.updateColumns = updateColumns;
+        this.deleteSql = deleteSql;
+        this.selectByIdSql = selectByIdSql;
+        this.selectAllSql = selectAllSql;
+        this.upsertSql = upsertSql;
+        this.upsertColumns = upsertColumns;
+    }
+
+    // Table name as statements refer to it, e.g. with its database
+    public String getQualifiedTableName() {
+        return qualifiedTableName;
+    }
+
+    // INSERT of every non auto-increment column
+    public String getInsertSql() {
+        return insertSql;
+    }
+
+    public ColumnMeta[] getInsertColumns() {
+        return insertColumns;
+    }
+
+    // UPDATE of every non-key, non auto-increment column, by primary key
+    public String getUpdateSql() {
+        return updateSql;
+    }
+
+    // Assigned columns followed by the primary key
+    public ColumnMeta[] getUpdateColumns() {
+        return updateColumns;
+    }
+
+    // DELETE by primary key
+    public String getDeleteSql() {
+        return deleteSql;
+    }
+
+    // SELECT of every column by primary key, columns in TableMeta order
+    public String getSelectByIdSql() {
+        return selectByIdSql;
+    }
+
+    // SELECT of every column, columns in TableMeta order; append a WHERE clause to filter
+    public String getSelectAllSql() {
+        return selectAllSql;
+    }
+
+    // INSERT of every column including the key, updating every non-key column when a primary or unique key collides
+    public String getUpsertSql() {
+        return upsertSql;
+    }
+
+    public ColumnMeta[] getUpsertColumns() {
+        return upsertColumns;
+    }
+}
@@ -1,10 +1,16 @@
 package dev.alortie.jorm.metadata;
 
+import dev.alortie.jorm.cache.EntityCache;
 import dev.alortie.jorm.core.JORM;
 import dev.alortie.jorm.core.QueryBuilder;
 import dev.alortie.jorm.utils.JORMAdapter;
 
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class TableMeta<T> {
     private final String tableName;
@@ -13,6 +19,13 @@ public class TableMeta<T> {
 
     final List<RelationshipMeta> relationships;
 
+    private SQLTemplates templates;
+    private ColumnMeta primaryKey;
+    // No-arg constructor, typed ()Object
+    private MethodHandle constructor;
+    private EntityCache cache; // null unless the entity is @Cacheable
+    private final AtomicLong writeStamp = new AtomicLong();
+
     public TableMeta(String tableName, ColumnMeta[] columns, Class<T> entityClass, List<RelationshipMeta> relationships) {
         this.tableName = tableName;
         this.columns = columns;
@@ -32,9 +45,62 @@ public class TableMeta<T> {
         return entityClass;
     }
 
+    public List<RelationshipMeta> getRelationships() {
+        return relationships;
+    }
+
+    public SQLTemplates getTemplates() {
+        return templates;
+    }
+
+    public void setTemplates(SQLTemplates templates) {
+        this.templates = templates;
+    }
+
+    public EntityCache getCache() {
+        return cache;
+    }
+
+    public void setCache(EntityCache cache) {
+        this.cache = cache;
+    }
+
+    // Changes whenever JORM writes to the table; cached query results from an older stamp are stale
+    public long getWriteStamp() {
+        return writeStamp.get();
+    }
+
+    public void markWritten() {
+        writeStamp.incrementAndGet();
+    }
+
+    public void setConstructor(MethodHandle constructor) {
+        this.constructor = constructor;
+    }
+
+    /**
+     * Create an empty entity through its no-arg constructor.
+     *
+     * @return A new instance of the entity class.
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        try {
+            return (T) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Failed to instantiate " + entityClass.getSimpleName(), t);
+        }
+    }
+
     public ColumnMeta getPrimaryKeyColumn() {
+        if (primaryKey != null) {
+            return primaryKey;
+        }
         for (ColumnMeta column : columns) {
             if (column.isPrimaryKey()) {
+                primaryKey = column;
                 return column;
             }
         }
@@ -47,6 +113,21 @@ public class TableMeta<T> {
         JORMAdapter.insert(this, object);
     }
 
+    public void insertAll(Collection<T> objects){
+        JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
+        JORMAdapter.insertBatch(this, objects);
+    }
+
+    public void upsert(Object object){
+        JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
+        JORMAdapter.upsert(this, object);
+    }
+
+    public void upsertAll(Collection<T> objects){
+        JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
+        JORMAdapter.upsertBatch(this, objects);
+    }
+
     public void update(Object object){
         JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
         JORMAdapter.update(this, object);
@@ -57,6 +138,25 @@ public class TableMeta<T> {
         JORMAdapter.delete(this, object);
     }
 
+    public void updateAll(Collection<T> objects){
+        JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
+        JORMAdapter.updateBatch(this, objects);
+    }
+
+    public int deleteAll(Collection<T> objects){
+        ColumnMeta primaryKey = getPrimaryKeyColumn();
+        List<Object> ids = new ArrayList<>(objects.size());
+        for (T object : objects) {
+            ids.add(primaryKey.getValue(object));
+        }
+        return deleteByIds(ids);
+    }
+
+    public int deleteByIds(Collection<?> ids){
+        JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
+        return JORMAdapter.deleteByIds(this, ids);
+    }
+
 
     public List<T> selectAll() {
         JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
@@ -68,6 +168,17 @@ public class TableMeta<T> {
         return (T) JORMAdapter.selectById(this, id);
     }
 
+    public List<T> selectByIds(Collection<?> ids) {
+        JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
+        return JORMAdapter.selectByIds(this, ids);
+    }
+
+    // Every row, read on demand; close the stream when done with it
+    public Stream<T> stream() {
+        JORMAdapter JORMAdapter = JORM.getInstance().getAdapter();
+        return JORMAdapter.stream(this, null);
+    }
+
     public QueryBuilder<T> query() {
         return new QueryBuilder<>(this);
     }
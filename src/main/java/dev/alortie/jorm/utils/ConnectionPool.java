@@ -0,0 +1,342 @@
+package dev.alortie.jorm.utils;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections.
+ * Idle connections are reused most-recently-returned first so that the least
+ * used ones age out and can be evicted by the background housekeeper.
+ */
+public class ConnectionPool {
+    private static final String TAG = "ConnectionPool";
+
+    private final String dbUrl;
+    private final String username;
+    private final String password;
+    private final PoolConfig config;
+
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    // Physical connections open or being opened; a slot is reserved before create() so there are never more than maxSize
+    private final AtomicInteger total = new AtomicInteger();
+    private ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+
+    public ConnectionPool(String dbUrl, String username, String password, PoolConfig config) {
+        this.dbUrl = dbUrl;
+        this.username = username;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+    }
+
+    /**
+     * Open the minimum number of idle connections and start the housekeeping thread.
+     */
+    public void start() {
+        fillToMinimum();
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jorm-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(
+                this::maintain,
+                config.getMaintenanceInterval(),
+                config.getMaintenanceInterval(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Borrow a connection, waiting up to the configured borrow timeout for one to become free.
+     *
+     * @return A validated connection that must be handed back with {@link #release(PooledConnection)}.
+     */
+    public PooledConnection borrow() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+
+        boolean acquired;
+        waiting.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(config.getBorrowTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        if (!acquired) {
+            borrowTimeouts.incrementAndGet();
+            throw new RuntimeException("Timed out after " + config.getBorrowTimeout() +
+                    "ms waiting for a connection (max pool size " + config.getMaxSize() + ")");
+        }
+
+        try {
+            PooledConnection pooled;
+            while (true) {
+                synchronized (idle) {
+                    pooled = idle.pollFirst();
+                }
+                if (pooled == null) {
+                    if (reserve()) {
+                        pooled = create();
+                        break;
+                    }
+                    awaitIdle(); // every slot is taken, so the housekeeper is opening one that will be idle shortly
+                    continue;
+                }
+                if (!config.isValidateOnBorrow() || isValid(pooled)) {
+                    break;
+                }
+                validationFailures.incrementAndGet();
+                Log.d(TAG, "Discarding connection that failed validation");
+                destroy(pooled);
+            }
+
+            pooled.markBorrowed(config.getLeakDetectionThreshold() > 0 ? new Throwable("Connection borrowed here") : null);
+            borrowed.add(pooled);
+            borrowCount.incrementAndGet();
+            return pooled;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Hand a borrowed connection back to the pool.
+     * Broken connections and connections returned after {@link #close()} are discarded.
+     */
+    public void release(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) {
+            throw new IllegalStateException("Connection was not borrowed from this pool");
+        }
+
+        try {
+            if (closed || pooled.getConnection().isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            if (!pooled.getConnection().getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction
+                pooled.getConnection().rollback();
+                pooled.getConnection().setAutoCommit(true);
+            }
+            pooled.markReturned();
+            synchronized (idle) {
+                idle.offerFirst(pooled);
+                idle.notifyAll();
+            }
+        } catch (SQLException e) {
+            Log.e(TAG, "Failed to reset connection, discarding it: " + e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close all idle connections and stop the housekeeper.
+     * Connections still borrowed are closed as they are released.
+     */
+    public void close() {
+        closed = true;
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        List<PooledConnection> toClose;
+        synchronized (idle) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public PoolStats getStats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        int activeCount = borrowed.size();
+        return new PoolStats(
+                idleCount + activeCount,
+                idleCount,
+                activeCount,
+                waiting.get(),
+                createdCount.get(),
+                destroyedCount.get(),
+                borrowCount.get(),
+                borrowTimeouts.get(),
+                validationFailures.get(),
+                leaksDetected.get(),
+                statementCacheHits.get(),
+                statementCacheMisses.get(),
+                statementCacheEvictions.get()
+        );
+    }
+
+    // Claim a slot for a new connection, unless the pool already has maxSize
+    private boolean reserve() {
+        while (true) {
+            int current = total.get();
+            if (current >= config.getMaxSize()) return false;
+            if (total.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    private void awaitIdle() {
+        synchronized (idle) {
+            if (!idle.isEmpty()) return;
+            try {
+                idle.wait(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a connection", e);
+            }
+        }
+    }
+
+    // Open a connection in a slot taken with reserve(), giving the slot back if that fails
+    private PooledConnection create() {
+        try {
+            Connection connection = DriverManager.getConnection(dbUrl, username, password);
+            createdCount.incrementAndGet();
+            Log.d(TAG, "Opened new connection");
+            StatementCache statementCache = new StatementCache(
+                    connection,
+                    config.getStatementCacheSize(),
+                    statementCacheHits,
+                    statementCacheMisses,
+                    statementCacheEvictions
+            );
+            return new PooledConnection(connection, statementCache);
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw new RuntimeException("Failed to connect to the database: " + e.getMessage());
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        pooled.getStatementCache().clear();
+        try {
+            pooled.getConnection().close();
+        } catch (SQLException e) {
+            Log.e(TAG, "Failed to close connection: " + e.getMessage());
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.getConnection().isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Evict connections idle for too long, top the pool back up and report leaks
+    private void maintain() {
+        try {
+            evictIdle();
+            fillToMinimum();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Pool maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - config.getIdleTimeout();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (idle) {
+            int total = idle.size() + borrowed.size();
+            // The tail holds the connections that have been idle the longest
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && total > config.getMinIdle()) {
+                PooledConnection pooled = it.next();
+                if (pooled.getLastReturnedAt() >= cutoff) break;
+                it.remove();
+                evicted.add(pooled);
+                total--;
+            }
+        }
+        for (PooledConnection pooled : evicted) {
+            Log.d(TAG, "Evicting idle connection");
+            destroy(pooled);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed) {
+            synchronized (idle) {
+                if (idle.size() >= config.getMinIdle()) return;
+            }
+            if (!reserve()) return;
+            PooledConnection pooled = create();
+            synchronized (idle) {
+                idle.offerLast(pooled);
+                idle.notifyAll();
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = config.getLeakDetectionThreshold();
+        if (threshold <= 0) return;
+
+        long cutoff = System.currentTimeMillis() - threshold;
+        for (PooledConnection pooled : borrowed) {
+            if (pooled.isLeakReported() || pooled.getBorrowedAt() >= cutoff) continue;
+            pooled.setLeakReported(true);
+            leaksDetected.incrementAndGet();
+
+            StringWriter trace = new StringWriter();
+            Throwable site = pooled.getBorrowSite();
+            if (site != null) {
+                site.printStackTrace(new PrintWriter(trace));
+            }
+            Log.e(TAG, "Possible connection leak: connection held for more than " + threshold + "ms\n" + trace);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package dev.alortie.jorm.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sizing of IN (...) lists. A list is padded up to a bucket size (8, 16, 32, ...) by repeating its last value,
+ * which matches the same rows, so a statement cache sees one statement per bucket instead of one per list length.
+ */
+public class InLists {
+    private static final int MIN_BUCKET = 8;
+
+    /**
+     * Number of placeholders used for a list of values.
+     *
+     * @param size The number of values.
+     * @param max  The largest list allowed; a bucket beyond it is capped to it.
+     * @return The smallest bucket holding size values, at most max.
+     */
+    public static int bucketSize(int size, int max) {
+        int bucket = MIN_BUCKET;
+        while (bucket < size) {
+            bucket <<= 1;
+        }
+        return Math.max(size, Math.min(bucket, max));
+    }
+
+    /**
+     * Values to bind for a list, padded to its bucket size.
+     *
+     * @param values The values, not empty and at most max of them.
+     * @param max    The largest list allowed.
+     * @return The padded values.
+     */
+    public static Object[] pad(List<?> values, int max) {
+        Object[] padded = new Object[bucketSize(values.size(), max)];
+        for (int i = 0; i < padded.length; i++) {
+            padded[i] = values.get(Math.min(i, values.size() - 1));
+        }
+        return padded;
+    }
+
+    // "?, ?, ?" for count values
+    public static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
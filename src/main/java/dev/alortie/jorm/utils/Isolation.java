@@ -0,0 +1,22 @@
+package dev.alortie.jorm.utils;
+
+import java.sql.Connection;
+
+public enum Isolation {
+    DEFAULT(-1), // Keep the connection's level, REPEATABLE READ on a stock MySQL server
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    private final int level;
+
+    Isolation(int level) {
+        this.level = level;
+    }
+
+    // JDBC isolation level, -1 for DEFAULT
+    public int getLevel() {
+        return level;
+    }
+}
@@ -2,29 +2,100 @@ package dev.alortie.jorm.utils;
 
 import dev.alortie.jorm.metadata.TableMeta;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface JORMAdapter {
 
+    // Alias of the queried table in selectJoined; where clauses passed to it must qualify columns with it
+    String ROOT_ALIAS = "t0";
+
+    // Open the connection pool; adapters may also connect lazily on first use
     void connect();
 
+    // Close the connection pool
     void disconnect();
 
+    PoolStats getPoolStats();
+
+    // Most values sent in one IN (...) list; longer lists are split
+    int getMaxInListSize();
+
+    // Precompute the statements used for a table; called once per entity at startup
+    void prepareTable(TableMeta<?> tableMeta);
+
     void createTable(TableMeta<?> tableMeta);
 
     void dropTable(TableMeta<?> tableMeta);
 
     void insert(TableMeta<?> tableMeta, Object entity);
 
+    // Insert many entities in one transaction, back-filling generated keys
+    void insertBatch(TableMeta<?> tableMeta, Collection<?> entities);
+
+    // Insert, or update the row whose primary or unique key collides
+    void upsert(TableMeta<?> tableMeta, Object entity);
+
+    // Upsert many entities in one transaction, back-filling keys
+    void upsertBatch(TableMeta<?> tableMeta, Collection<?> entities);
+
     void update(TableMeta<?> tableMeta, Object entity);
 
     void delete(TableMeta<?> tableMeta, Object entity);
 
+    // Update many entities in one transaction
+    void updateBatch(TableMeta<?> tableMeta, Collection<?> entities);
+
+    // Delete rows by primary key in one transaction, returning the number deleted
+    int deleteByIds(TableMeta<?> tableMeta, Collection<?> ids);
+
+    // Set columns on every row matching whereClause in one statement; params bind the new values, then whereClause.
+    // Returns the number of rows changed
+    int updateWhere(TableMeta<?> tableMeta, List<String> columns, String whereClause, Object... params);
+
+    // Delete every row matching whereClause in one statement, returning the number deleted
+    int deleteWhere(TableMeta<?> tableMeta, String whereClause, Object... params);
+
+    // Run work on one connection in one transaction, joining a transaction already open on this thread
+    void transaction(Runnable work);
+
+    // Bind a connection to this thread and start a transaction on it
+    void begin(TransactionOptions options);
+
+    void commit();
+
+    void rollback();
+
+    boolean isTransactionActive();
+
 
     <T> List<T> selectAll(TableMeta<T> tableMeta);
 
     <T> T selectById(TableMeta<T> tableMeta, Object primaryKeyValue);
 
+    // Load every row whose primary key is in ids, in no particular order
+    <T> List<T> selectByIds(TableMeta<T> tableMeta, Collection<?> ids);
+
+    // Run a complete SELECT of the table's columns in TableMeta order, e.g. its select-all template followed by a WHERE clause
+    <T> List<T> select(TableMeta<T> tableMeta, String sql, Object... params);
+
     <T> List<T> selectWhere(TableMeta<T> tableMeta, String whereClause, Object... params);
 
+    // Lazily read rows matching whereClause (every row when null); the stream holds a connection until closed,
+    // the transaction's own when one is open on the thread
+    <T> Stream<T> stream(TableMeta<T> tableMeta, String whereClause, Object... params);
+
+    // Read only the named columns or SQL expressions (e.g. COUNT(*)) of rows matching whereClause, unhydrated, in the given order
+    List<Object[]> selectColumns(TableMeta<?> tableMeta, List<String> columns, String whereClause, Object... params);
+
+    // Like selectWhere, also loading the @ManyToOne field paths in fetchPaths through joins
+    <T> List<T> selectJoined(TableMeta<T> tableMeta, String whereClause, List<String> fetchPaths, Object... params);
+
+    // Build the joins, select list and SQL of a selectJoined once, for a query executed many times
+    <T> JoinedSelect<T> planJoined(TableMeta<T> tableMeta, String whereClause, List<String> fetchPaths);
+
+    // Run a select planned by planJoined, binding params in order
+    <T> List<T> selectJoined(JoinedSelect<T> select, Object... params);
+
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package dev.alortie.jorm.utils;
+
+import dev.alortie.jorm.metadata.ColumnMeta;
+import dev.alortie.jorm.metadata.TableMeta;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One table in a joined select and the slice of each result row that belongs to it.
+ * Part of a {@link JoinedSelect}'s plan: fixed once planned, and shared by every execution.
+ */
+class JoinNode {
+    final TableMeta<?> table;
+    final JoinNode parent;
+    final ColumnMeta via; // foreign key column in the parent that this join follows
+    final String alias;
+    final Map<String, JoinNode> children = new LinkedHashMap<>();
+    int index;
+    int offset;
+
+    JoinNode(TableMeta<?> table, JoinNode parent, ColumnMeta via, int aliasNumber) {
+        this.table = table;
+        this.parent = parent;
+        this.via = via;
+        this.alias = aliasNumber == 0 ? JORMAdapter.ROOT_ALIAS : "t" + aliasNumber;
+    }
+
+    // Parents come before their children, which is the order rows are hydrated and wired in
+    void collect(List<JoinNode> nodes) {
+        index = nodes.size();
+        nodes.add(this);
+        for (JoinNode child : children.values()) {
+            child.collect(nodes);
+        }
+    }
+
+    Set<ColumnMeta> joinedColumns() {
+        Set<ColumnMeta> joined = new HashSet<>();
+        for (JoinNode child : children.values()) {
+            joined.add(child.via);
+        }
+        return joined;
+    }
+}
@@ -0,0 +1,36 @@
+package dev.alortie.jorm.utils;
+
+import dev.alortie.jorm.metadata.TableMeta;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A select that loads @ManyToOne fetch paths through LEFT JOINs, planned once by
+ * {@link JORMAdapter#planJoined} so each {@link JORMAdapter#selectJoined(JoinedSelect, Object...)} only binds values.
+ * Instances are immutable and may be shared between threads.
+ *
+ * @param <T> The queried entity type.
+ */
+public final class JoinedSelect<T> {
+    final TableMeta<T> table;
+    final List<JoinNode> nodes; // parents before children; nodes.get(0) is the queried table
+    final int width; // columns in each result row
+    private final String sql;
+
+    JoinedSelect(TableMeta<T> table, List<JoinNode> nodes, int width, String sql) {
+        this.table = table;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.width = width;
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
@@ -0,0 +1,61 @@
+package dev.alortie.jorm.utils;
+
+import dev.alortie.jorm.core.JORM;
+import dev.alortie.jorm.core.Session;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entities materialized during one load, keyed by entity class and primary key.
+ * Rows that share a parent are wired to the same instance, and a parent that is
+ * already loaded is never queried for again within the same load.
+ * Inside a session the session's identity map is used instead, so the same holds across loads.
+ */
+class LoadContext {
+    private final Session session;
+    private final boolean snapshots; // whether loaded entities get a dirty-checking snapshot
+    private final Map<Class<?>, Map<Object, Object>> loaded = new HashMap<>();
+
+    // A context backed by the current thread's session, if one is open
+    LoadContext() {
+        this(JORM.getInstance().getCurrentSession());
+    }
+
+    LoadContext(Session session) {
+        this(session, true);
+    }
+
+    LoadContext(Session session, boolean snapshots) {
+        this.session = session;
+        this.snapshots = snapshots;
+    }
+
+    boolean takesSnapshots() {
+        return snapshots;
+    }
+
+    Object get(Class<?> entityClass, Object primaryKey) {
+        if (session != null) {
+            return session.get(entityClass, primaryKey);
+        }
+        Map<Object, Object> byKey = loaded.get(entityClass);
+        return byKey == null ? null : byKey.get(primaryKey);
+    }
+
+    boolean contains(Class<?> entityClass, Object primaryKey) {
+        if (session != null) {
+            return session.contains(entityClass, primaryKey);
+        }
+        Map<Object, Object> byKey = loaded.get(entityClass);
+        return byKey != null && byKey.containsKey(primaryKey);
+    }
+
+    void put(Class<?> entityClass, Object primaryKey, Object entity) {
+        if (session != null) {
+            session.put(entityClass, primaryKey, entity);
+            return;
+        }
+        loaded.computeIfAbsent(entityClass, k -> new HashMap<>()).put(primaryKey, entity);
+    }
+}
@@ -0,0 +1,78 @@
+package dev.alortie.jorm.utils;
+
+import dev.alortie.jorm.metadata.ColumnMeta;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entities JORM has loaded or written and not deleted since, so each is known to have a row.
+ * Held weakly and matched by identity like {@link Snapshots}, and grouped by class so a delete
+ * by key only looks at the instances of its table. Unlike snapshots this is kept whether or not
+ * dirty checking is on, and bulk statements, which cannot tell which instances they touched, leave it alone.
+ */
+class Persisted {
+    private final Map<Class<?>, Set<Snapshots.Key>> byClass = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    // True if the entity was not already in the set
+    boolean add(Object entity) {
+        expunge();
+        return byClass.computeIfAbsent(entity.getClass(), k -> ConcurrentHashMap.newKeySet())
+                .add(new Snapshots.Key(entity, queue));
+    }
+
+    // True if the entity was in the set
+    boolean remove(Object entity) {
+        Set<Snapshots.Key> keys = byClass.get(entity.getClass());
+        return keys != null && keys.remove(new Snapshots.Key(entity, null));
+    }
+
+    boolean contains(Object entity) {
+        Set<Snapshots.Key> keys = byClass.get(entity.getClass());
+        return keys != null && keys.contains(new Snapshots.Key(entity, null));
+    }
+
+    // Remove every instance of a class whose primary key is one of primaryKeys, returning them
+    List<Object> removeByKey(Class<?> entityClass, ColumnMeta primaryKey, Collection<?> primaryKeys) {
+        Set<Snapshots.Key> keys = byClass.get(entityClass);
+        if (keys == null) return Collections.emptyList();
+        Set<Object> deleted = new HashSet<>(primaryKeys);
+        List<Object> removed = new ArrayList<>();
+        keys.removeIf(key -> {
+            Object entity = key.get();
+            if (entity == null || !deleted.contains(primaryKey.getValue(entity))) return false;
+            removed.add(entity);
+            return true;
+        });
+        return removed;
+    }
+
+    // The entities still alive
+    List<Object> entities() {
+        List<Object> entities = new ArrayList<>();
+        for (Set<Snapshots.Key> keys : byClass.values()) {
+            for (Snapshots.Key key : keys) {
+                Object entity = key.get();
+                if (entity != null) entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    private void expunge() {
+        Object key;
+        while ((key = queue.poll()) != null) {
+            for (Set<Snapshots.Key> keys : byClass.values()) {
+                if (keys.remove(key)) break;
+            }
+        }
+    }
+}
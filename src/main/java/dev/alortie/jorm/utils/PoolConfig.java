@@ -0,0 +1,101 @@
+package dev.alortie.jorm.utils;
+
+/**
+ * Settings for the {@link ConnectionPool} used by {@link SQLBuilder}.
+ * Defaults are suitable for a small application; all durations are in milliseconds.
+ */
+public class PoolConfig {
+    private int minIdle = 2;
+    private int maxSize = 10;
+    private long idleTimeout = 10 * 60 * 1000L;
+    private boolean validateOnBorrow = true;
+    private int validationTimeoutSeconds = 2;
+    private long borrowTimeout = 30 * 1000L;
+    private long leakDetectionThreshold = 0; // 0 disables leak detection
+    private long maintenanceInterval = 30 * 1000L;
+    private int statementCacheSize = 64; // per connection
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("minIdle must be >= 0");
+        }
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be >= 1");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public long getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    public void setBorrowTimeout(long borrowTimeout) {
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    public long getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    public long getMaintenanceInterval() {
+        return maintenanceInterval;
+    }
+
+    public void setMaintenanceInterval(long maintenanceInterval) {
+        if (maintenanceInterval < 1) {
+            throw new IllegalArgumentException("maintenanceInterval must be >= 1");
+        }
+        this.maintenanceInterval = maintenanceInterval;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 1) {
+            throw new IllegalArgumentException("statementCacheSize must be >= 1");
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+}
@@ -0,0 +1,121 @@
+package dev.alortie.jorm.utils;
+
+/**
+ * Point-in-time snapshot of {@link ConnectionPool} counters.
+ */
+public class PoolStats {
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final int waitingThreads;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long borrowCount;
+    private final long borrowTimeouts;
+    private final long validationFailures;
+    private final long leaksDetected;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    public PoolStats(
+            int totalConnections,
+            int idleConnections,
+            int activeConnections,
+            int waitingThreads,
+            long createdCount,
+            long destroyedCount,
+            long borrowCount,
+            long borrowTimeouts,
+            long validationFailures,
+            long leaksDetected,
+            long statementCacheHits,
+            long statementCacheMisses,
+            long statementCacheEvictions
+    ) {
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.waitingThreads = waitingThreads;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.borrowCount = borrowCount;
+        this.borrowTimeouts = borrowTimeouts;
+        this.validationFailures = validationFailures;
+        this.leaksDetected = leaksDetected;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getBorrowTimeouts() {
+        return borrowTimeouts;
+    }
+
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "total=" + totalConnections +
+                ", idle=" + idleConnections +
+                ", active=" + activeConnections +
+                ", waiting=" + waitingThreads +
+                ", created=" + createdCount +
+                ", destroyed=" + destroyedCount +
+                ", borrows=" + borrowCount +
+                ", timeouts=" + borrowTimeouts +
+                ", validationFailures=" + validationFailures +
+                ", leaks=" + leaksDetected +
+                ", statementCacheHits=" + statementCacheHits +
+                ", statementCacheMisses=" + statementCacheMisses +
+                ", statementCacheEvictions=" + statementCacheEvictions +
+                '}';
+    }
+}
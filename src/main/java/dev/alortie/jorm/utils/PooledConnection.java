@@ -0,0 +1,67 @@
+package dev.alortie.jorm.utils;
+
+import java.sql.Connection;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}, along with the
+ * bookkeeping the pool needs for idle eviction and leak detection.
+ */
+public class PooledConnection {
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final long createdAt;
+    private long lastReturnedAt;
+    private long borrowedAt;
+    private Throwable borrowSite;
+    private boolean leakReported;
+
+    PooledConnection(Connection connection, StatementCache statementCache) {
+        this.connection = connection;
+        this.statementCache = statementCache;
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturnedAt = createdAt;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowSite() {
+        return borrowSite;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    void markBorrowed(Throwable borrowSite) {
+        this.borrowedAt = System.currentTimeMillis();
+        this.borrowSite = borrowSite;
+        this.leakReported = false;
+    }
+
+    void markReturned() {
+        this.lastReturnedAt = System.currentTimeMillis();
+        this.borrowSite = null;
+    }
+}
@@ -1,14 +1,26 @@
 package dev.alortie.jorm.utils;
 
+import dev.alortie.jorm.annotations.Cacheable;
+import dev.alortie.jorm.annotations.CascadeType;
 import dev.alortie.jorm.annotations.Column;
 import dev.alortie.jorm.annotations.Entity;
+import dev.alortie.jorm.annotations.FetchType;
 import dev.alortie.jorm.annotations.ManyToOne;
+import dev.alortie.jorm.annotations.OneToMany;
 import dev.alortie.jorm.annotations.PrimaryKey;
+import dev.alortie.jorm.cache.EntityCache;
+import dev.alortie.jorm.core.LazyList;
+import dev.alortie.jorm.core.Ref;
 import dev.alortie.jorm.metadata.ColumnMeta;
 import dev.alortie.jorm.metadata.RelationshipMeta;
 import dev.alortie.jorm.metadata.TableMeta;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 
 public class ReflectionUtils {
@@ -28,6 +40,26 @@ public class ReflectionUtils {
     }
 
 
+    /**
+     * Get the entity class a @ManyToOne field points at, unwrapping {@code Ref<T>} fields.
+     *
+     * @param field The relationship field.
+     * @return The referenced entity class.
+     */
+    public static Class<?> getReferencedEntity(Field field) {
+        if (field.getType() != Ref.class) {
+            return field.getType();
+        }
+        Type generic = field.getGenericType();
+        if (generic instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) generic).getActualTypeArguments()[0];
+            if (argument instanceof Class<?>) {
+                return (Class<?>) argument;
+            }
+        }
+        throw new IllegalArgumentException("Ref field " + field.getName() + " must declare its entity type, e.g. Ref<User>");
+    }
+
     /**
      * Generate a ColumnMeta object from a field.
      *
@@ -60,17 +92,27 @@ public class ReflectionUtils {
 
         boolean isForeignKey = false;
         Class<?> referencedEntity = null;
+        FetchType fetchType = FetchType.DEFAULT;
+        boolean reference = false;
+        CascadeType cascade = CascadeType.NONE;
 
         // Check if the field is a foreign key
         if(field.isAnnotationPresent(ManyToOne.class)) {
             Log.d("ReflectionUtils-generateColumnMeta", "Field " + field.getName() + " is a foreign key - skipping");
             isForeignKey = true;
-            referencedEntity = field.getType();
+            referencedEntity = getReferencedEntity(field);
             fieldType = getPrimaryKeyType(referencedEntity);
+            fetchType = field.getAnnotation(ManyToOne.class).fetch();
+            reference = field.getType() == Ref.class;
+            cascade = field.getAnnotation(ManyToOne.class).cascade();
+
+            if (fetchType == FetchType.LAZY && !reference) {
+                throw new IllegalArgumentException("Lazy @ManyToOne field " + field.getName() + " must be declared as Ref<" + referencedEntity.getSimpleName() + ">");
+            }
         }
 
 
-        return new ColumnMeta(
+        ColumnMeta columnMeta = new ColumnMeta(
                 columnName,
                 fieldName,
                 fieldType,
@@ -82,6 +124,59 @@ public class ReflectionUtils {
                 length,
                 referencedEntity
         );
+        columnMeta.setFetchType(fetchType);
+        columnMeta.setReference(reference);
+        columnMeta.setCascade(cascade);
+
+        columnMeta.setAccessors(getFieldGetter(field), getFieldSetter(field));
+
+        return columnMeta;
+    }
+
+    /**
+     * Resolve a getter handle for a field, typed (Object)Object.
+     *
+     * @param field The field to read.
+     * @return The getter handle.
+     */
+    public static MethodHandle getFieldGetter(Field field) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            return lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Failed to access field: " + field.getName(), e);
+        }
+    }
+
+    /**
+     * Resolve a setter handle for a field, typed (Object,Object)void.
+     *
+     * @param field The field to write.
+     * @return The setter handle.
+     */
+    public static MethodHandle getFieldSetter(Field field) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            return lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Failed to access field: " + field.getName(), e);
+        }
+    }
+
+    /**
+     * Resolve a handle to the no-arg constructor of an entity class.
+     *
+     * @param clazz The entity class to inspect.
+     * @return A handle of type ()Object.
+     */
+    public static MethodHandle getConstructorHandle(Class<?> clazz) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+            return lookup.findConstructor(clazz, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Entity " + clazz.getName() + " needs an accessible no-arg constructor", e);
+        }
     }
 
     /**
@@ -117,13 +212,37 @@ public class ReflectionUtils {
                         RelationshipMeta.Type.MANY_TO_ONE,
                         rel.foreignKey(),
                         field,
-                        field.getType()
+                        getReferencedEntity(field)
                 );
+                relMeta.setFetchType(rel.fetch());
+                relMeta.setAccessors(getFieldGetter(field), getFieldSetter(field));
+                relationships.add(relMeta);
+            }
+            if (field.isAnnotationPresent(OneToMany.class)) {
+                OneToMany rel = field.getAnnotation(OneToMany.class);
+                // Eager loads assign an ArrayList and lazy ones a LazyList, so the field must accept both
+                if (!field.getType().isAssignableFrom(ArrayList.class) || !field.getType().isAssignableFrom(LazyList.class)) {
+                    throw new IllegalArgumentException("@OneToMany field " + field.getName() + " must be declared as a List or Collection");
+                }
+                RelationshipMeta relMeta = new RelationshipMeta(
+                        RelationshipMeta.Type.ONE_TO_MANY,
+                        rel.foreignKey(),
+                        field,
+                        rel.mappedBy()
+                );
+                relMeta.setFetchType(rel.fetch());
+                relMeta.setAccessors(getFieldGetter(field), getFieldSetter(field));
                 relationships.add(relMeta);
             }
         }
 
-        return new TableMeta<T>(tableName, columns.toArray(new ColumnMeta[0]), clazz, relationships);
+        TableMeta<T> tableMeta = new TableMeta<T>(tableName, columns.toArray(new ColumnMeta[0]), clazz, relationships);
+        tableMeta.setConstructor(getConstructorHandle(clazz));
+        if (clazz.isAnnotationPresent(Cacheable.class)) {
+            Cacheable cacheable = clazz.getAnnotation(Cacheable.class);
+            tableMeta.setCache(new EntityCache(cacheable.maxSize(), cacheable.ttlSeconds(), cacheable.eviction()));
+        }
+        return tableMeta;
     }
 
     /**
@@ -1,16 +1,38 @@
 package dev.alortie.jorm.utils;
 
-import dev.alortie.jorm.annotations.PrimaryKey;
+import dev.alortie.jorm.annotations.FetchType;
+import dev.alortie.jorm.cache.EntityCache;
 import dev.alortie.jorm.core.JORM;
+import dev.alortie.jorm.core.LazyList;
+import dev.alortie.jorm.core.Ref;
 import dev.alortie.jorm.core.SchemaManager;
+import dev.alortie.jorm.core.Session;
 import dev.alortie.jorm.metadata.ColumnMeta;
+import dev.alortie.jorm.metadata.RelationshipMeta;
+import dev.alortie.jorm.metadata.SQLTemplates;
 import dev.alortie.jorm.metadata.TableMeta;
 
-import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class SQLBuilder implements JORMAdapter {
 
@@ -38,18 +60,137 @@ public class SQLBuilder implements JORMAdapter {
     }
 
 
-    Connection connection;
-
     private final String dbUrl;
     private final String username;
     private final String password;
     private final String databaseName;
+    private final PoolConfig poolConfig;
+    // Update counts are affected rows, so an upsert that changed nothing reports 0 rather than 1
+    private final boolean affectedRows;
+
+    private static final long DEFAULT_MAX_ALLOWED_PACKET = 4 * 1024 * 1024;
+    // Recorded in Scope.written when a bulk statement touched rows whose keys are unknown
+    private static final Object ALL_ROWS = new Object();
+
+    private int batchSize = 500;
+    private int maxInListSize = 1000;
+    private int maxFetchJoins = 4;
+    private int streamFetchSize = Integer.MIN_VALUE; // MySQL Connector/J streams row by row
+    private boolean dirtyChecking = true;
+    private final Snapshots snapshots = new Snapshots();
+    private final Persisted persisted = new Persisted();
+    private volatile long maxAllowedPacket = -1; // read from the server on first use
+
+    private volatile ConnectionPool pool;
+    // Connection held by the current thread, shared by nested calls such as FK resolution
+    private final ThreadLocal<Lease> lease = new ThreadLocal<>();
+
+    private static class Lease {
+        final ConnectionPool pool;
+        final PooledConnection connection;
+        // Callers holding the connection; atomic, as a stream may give its hold back on another thread
+        final AtomicInteger depth = new AtomicInteger(1);
+
+        // Set between begin and commit/rollback
+        boolean transaction;
+        int previousIsolation;
+        boolean previousReadOnly;
+        // Set while a transaction is open on the connection
+        Scope scope;
+
+        Lease(ConnectionPool pool, PooledConnection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+    }
+
+    // What a transaction did to shared state, settled when it commits or rolls back
+    private static class Scope {
+        // Rows written in the transaction, invalidated again once it ends; ALL_ROWS after a bulk statement
+        final Map<TableMeta<?>, Set<Object>> written = new LinkedHashMap<>();
+        // Snapshots as they were before the transaction changed them, put back on rollback; NO_SNAPSHOT if none.
+        // Held weakly, so entities a long transaction streams through are not kept alive.
+        final Snapshots snapshots = new Snapshots();
+        // Inserted entities made session instances, as {entity class, primary key, entity}, forgotten on rollback
+        final List<Object[]> managed = new ArrayList<>();
+        // Primary keys as they were before a generated key was assigned, as {column, value}, put back on rollback
+        final Map<Object, Object[]> keys = new IdentityHashMap<>();
+        // Entities the transaction added to or removed from persisted, reverted on rollback
+        final Persisted added = new Persisted();
+        final Persisted removed = new Persisted();
+    }
+
+    private static final Object[] NO_SNAPSHOT = new Object[0];
 
     public SQLBuilder(String dbUrl, String username, String password, String databaseName) {
+        this(dbUrl, username, password, databaseName, new PoolConfig());
+    }
+
+    public SQLBuilder(String dbUrl, String username, String password, String databaseName, PoolConfig poolConfig) {
         this.dbUrl = dbUrl;
         this.username = username;
         this.password = password;
         this.databaseName = databaseName;
+        this.poolConfig = poolConfig;
+        this.affectedRows = dbUrl.contains("useAffectedRows=true");
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    // Rows sent per executeBatch call by the batch operations
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    // Upper bound on values per IN (...) list; chunks are also kept under max_allowed_packet
+    public void setMaxInListSize(int maxInListSize) {
+        if (maxInListSize < 1) {
+            throw new IllegalArgumentException("maxInListSize must be >= 1");
+        }
+        this.maxInListSize = maxInListSize;
+    }
+
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    // Fetch size for stream(); Integer.MIN_VALUE streams row by row on MySQL, a positive value needs useCursorFetch=true
+    public void setStreamFetchSize(int streamFetchSize) {
+        if (streamFetchSize < 0 && streamFetchSize != Integer.MIN_VALUE) {
+            throw new IllegalArgumentException("streamFetchSize must be >= 0 or Integer.MIN_VALUE");
+        }
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    public boolean isDirtyChecking() {
+        return dirtyChecking;
+    }
+
+    // Snapshot loaded entities so updates write only changed columns, and nothing when none changed
+    public void setDirtyChecking(boolean dirtyChecking) {
+        this.dirtyChecking = dirtyChecking;
+    }
+
+    public int getMaxFetchJoins() {
+        return maxFetchJoins;
+    }
+
+    // Most tables joined by one fetch query; deeper relationships are loaded in batches instead
+    public void setMaxFetchJoins(int maxFetchJoins) {
+        if (maxFetchJoins < 0) {
+            throw new IllegalArgumentException("maxFetchJoins must be >= 0");
+        }
+        this.maxFetchJoins = maxFetchJoins;
     }
 
     private String generateCreateTableSQL(TableMeta<?> tableMeta) {
@@ -91,29 +232,157 @@ public class SQLBuilder implements JORMAdapter {
         return sql.toString();
     }
 
+    private SQLTemplates generateTemplates(TableMeta<?> tableMeta) {
+        String qualifiedName = databaseName + "." + tableMeta.getTableName();
+        ColumnMeta primaryKey = tableMeta.getPrimaryKeyColumn();
+
+        List<ColumnMeta> insertColumns = new ArrayList<>();
+        List<ColumnMeta> updateColumns = new ArrayList<>();
+        List<String> selectNames = new ArrayList<>();
+
+        for (ColumnMeta column : tableMeta.getColumns()) {
+            selectNames.add(column.getName());
+            if (column.isAutoIncrement()) continue;
+
+            insertColumns.add(column);
+            if (!column.isPrimaryKey()) {
+                updateColumns.add(column);
+            }
+        }
+
+        List<String> insertNames = new ArrayList<>();
+        for (ColumnMeta column : insertColumns) {
+            insertNames.add(column.getName());
+        }
+        List<String> assignments = new ArrayList<>();
+        for (ColumnMeta column : updateColumns) {
+            assignments.add(column.getName() + " = ?");
+        }
+        updateColumns.add(primaryKey); // bound last, in the WHERE clause
+
+        String pkPredicate = " WHERE " + primaryKey.getName() + " = ?";
+        String selectAll = "SELECT " + String.join(", ", selectNames) + " FROM " + qualifiedName;
+
+        String insertSql = "INSERT INTO " + qualifiedName +
+                " (" + String.join(", ", insertNames) + ") VALUES (" +
+                String.join(", ", Collections.nCopies(insertNames.size(), "?")) + ")";
+
+        // VALUES(col) rather than a row alias, which needs MySQL 8.0.19+. LAST_INSERT_ID(pk) makes the
+        // existing key come back as the generated key when the row is updated rather than inserted.
+        List<String> upsertAssignments = new ArrayList<>();
+        if (primaryKey.isAutoIncrement()) {
+            upsertAssignments.add(primaryKey.getName() + " = LAST_INSERT_ID(" + primaryKey.getName() + ")");
+        }
+        for (ColumnMeta column : tableMeta.getColumns()) {
+            if (!column.isPrimaryKey()) {
+                upsertAssignments.add(column.getName() + " = VALUES(" + column.getName() + ")");
+            }
+        }
+        if (upsertAssignments.isEmpty()) {
+            upsertAssignments.add(primaryKey.getName() + " = " + primaryKey.getName());
+        }
+        String upsertSql = "INSERT INTO " + qualifiedName +
+                " (" + String.join(", ", selectNames) + ") VALUES (" +
+                String.join(", ", Collections.nCopies(selectNames.size(), "?")) + ")" +
+                " ON DUPLICATE KEY UPDATE " + String.join(", ", upsertAssignments);
+        // A table with nothing but its key has nothing to update
+        String updateSql = assignments.isEmpty() ? null :
+                "UPDATE " + qualifiedName + " SET " + String.join(", ", assignments) + pkPredicate;
+
+        SQLTemplates templates = new SQLTemplates(
+                qualifiedName,
+                insertSql,
+                insertColumns.toArray(new ColumnMeta[0]),
+                updateSql,
+                updateColumns.toArray(new ColumnMeta[0]),
+                "DELETE FROM " + qualifiedName + pkPredicate,
+                selectAll + pkPredicate,
+                selectAll,
+                upsertSql,
+                tableMeta.getColumns()
+        );
+
+        Log.d("SQLUtils", "Generated templates for " + tableMeta.getTableName() + ": " + insertSql + " | " + updateSql);
+        return templates;
+    }
+
+    private SQLTemplates templates(TableMeta<?> tableMeta) {
+        SQLTemplates templates = tableMeta.getTemplates();
+        if (templates == null) { // Tables built outside of JORM.InitInstance
+            templates = generateTemplates(tableMeta);
+            tableMeta.setTemplates(templates);
+        }
+        return templates;
+    }
+
 
     @Override
-    public void connect() {
-        try{
-            this.connection = DriverManager.getConnection(
-                dbUrl,
-                username,
-                password
-            );
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to connect to the database: " + e.getMessage());
+    public synchronized void connect() {
+        if (pool != null && !pool.isClosed()) return;
+
+        ConnectionPool newPool = new ConnectionPool(dbUrl, username, password, poolConfig);
+        newPool.start();
+        pool = newPool;
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 
     @Override
-    public void disconnect() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                throw new RuntimeException("Failed to disconnect from the database: " + e.getMessage());
-            }
+    public PoolStats getPoolStats() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            return new PoolStats(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
         }
+        return current.getStats();
+    }
+
+    // Borrow a connection, or reuse the one this thread already holds
+    private PooledConnection acquire() {
+        Lease current = lease.get();
+        if (current != null && current.depth.getAndIncrement() > 0) {
+            return current.connection;
+        }
+        // else a stream closed on another thread released the lease last
+
+        ConnectionPool currentPool = currentPool();
+        PooledConnection pooled = currentPool.borrow();
+        lease.set(new Lease(currentPool, pooled));
+        return pooled;
+    }
+
+    private ConnectionPool currentPool() {
+        ConnectionPool currentPool = pool;
+        if (currentPool == null) {
+            connect();
+            currentPool = pool;
+        }
+        return currentPool;
+    }
+
+    // Give the connection back to the pool once the outermost caller is done with it
+    private void release() {
+        Lease current = lease.get();
+        if (current == null) return;
+        release(current);
+    }
+
+    // Release a lease that may belong to another thread, e.g. from a stream closed there
+    private void release(Lease current) {
+        if (current.depth.decrementAndGet() == 0) {
+            if (lease.get() == current) lease.remove();
+            current.pool.release(current.connection);
+        }
+    }
+
+    @Override
+    public void prepareTable(TableMeta<?> tableMeta) {
+        tableMeta.setTemplates(generateTemplates(tableMeta));
     }
 
     @Override
@@ -121,13 +390,13 @@ public class SQLBuilder implements JORMAdapter {
         Log.d("SQLUtils", "Creating table: " + tableMeta.getTableName());
         String sql = generateCreateTableSQL(tableMeta);
 
-        try {
-            connect();
-            connection.createStatement().execute(sql);
+        PooledConnection connection = acquire();
+        try (Statement stmt = connection.getConnection().createStatement()) {
+            stmt.execute(sql);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to create table: " + e.getMessage());
         } finally {
-            disconnect();
+            release();
         }
     }
 
@@ -139,305 +408,1557 @@ public class SQLBuilder implements JORMAdapter {
     @Override
     public void insert(TableMeta<?> tableMeta, Object entity) {
         Log.d("SQLUtils", "Inserting entity into table: " + tableMeta.getTableName());
+        SQLTemplates templates = templates(tableMeta);
+        write(tableMeta, entity, templates.getInsertSql(), templates.getInsertColumns(), false);
+    }
 
-        String tableName = tableMeta.getTableName();
-        List<String> columnNames = new ArrayList<>();
-        List<Object> values = new ArrayList<>();
+    /**
+     * Insert an entity, or update every column of the row whose primary or unique key it collides with,
+     * in one statement. The row's key is copied back onto the entity either way; a key that is not generated
+     * is read back by the entity's first non-null unique column, which costs a query on tables that have one
+     * unless the JDBC URL sets {@code useAffectedRows=true} and the row was plainly inserted.
+     */
+    @Override
+    public void upsert(TableMeta<?> tableMeta, Object entity) {
+        Log.d("SQLUtils", "Upserting entity into table: " + tableMeta.getTableName());
+        SQLTemplates templates = templates(tableMeta);
+        write(tableMeta, entity, templates.getUpsertSql(), templates.getUpsertColumns(), true);
+        evict(tableMeta, tableMeta.getPrimaryKeyColumn().getValue(entity));
+    }
 
-        for (ColumnMeta column : tableMeta.getColumns()) {
-            if (column.isAutoIncrement()) continue; // skip auto-increment fields
+    // Run an INSERT or upsert for one entity and take back its generated key
+    private void write(TableMeta<?> tableMeta, Object entity, String sql, ColumnMeta[] columns, boolean upsert) {
+        cascade(tableMeta, entity, false);
+        Object[] values = insertValues(columns, entity);
 
-            try {
-                Field field = entity.getClass().getDeclaredField(column.getFieldName());
-                field.setAccessible(true);
-
-                if (column.isForeignKey()) {
-                    Object relatedEntity = field.get(entity);
-                    if (relatedEntity != null) {
-                        TableMeta<?> relatedMeta = JORM.getInstance().repository(relatedEntity.getClass());
-                        insert(relatedMeta, relatedEntity); // recursively insert FK object
-
-                        Object fkValue = ReflectionUtils.getPrimaryKeyValue(relatedEntity);
-                        columnNames.add(column.getName());
-                        values.add(fkValue);
-                    } else if (!column.isNullable()) {
-                        throw new RuntimeException("Non-nullable foreign key is null: " + column.getName());
-                    }
-                } else {
-                    columnNames.add(column.getName());
-                    values.add(field.get(entity));
+        PooledConnection connection = acquire();
+        try {
+            PreparedStatement stmt = connection.getStatementCache().prepareReturningKeys(sql);
+            for (int i = 0; i < values.length; i++) {
+                stmt.setObject(i + 1, values[i]);
+            }
+            int count = stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    setGeneratedKey(tableMeta, entity, rs.getObject(1));
                 }
-
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new RuntimeException("Failed to access field: " + column.getFieldName(), e);
             }
+            if (upsert && !plainlyInserted(count)) {
+                readUpsertedKeys(tableMeta, Collections.singletonList(entity), connection);
+            }
+            markWritten(tableMeta);
+            markPersisted(entity);
+            manage(tableMeta, entity);
+            snapshot(tableMeta, entity);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to write entity into " + tableMeta.getTableName(), e);
+        } finally {
+            release();
         }
+    }
+
+    /**
+     * Insert many entities using JDBC batching, in chunks of {@link #getBatchSize()} rows,
+     * inside a single transaction. Auto-increment keys are copied back onto every entity.
+     * Add {@code rewriteBatchedStatements=true} to the JDBC URL to have Connector/J send
+     * each chunk as one multi-row INSERT.
+     */
+    @Override
+    public void insertBatch(TableMeta<?> tableMeta, Collection<?> entities) {
+        if (entities.isEmpty()) return;
+        Log.d("SQLUtils", "Batch inserting " + entities.size() + " entities into table: " + tableMeta.getTableName());
+        SQLTemplates templates = templates(tableMeta);
+        writeBatch(tableMeta, entities, templates.getInsertSql(), templates.getInsertColumns(), false);
+    }
 
-        String joinedColumns = String.join(", ", columnNames);
-        String placeholders = String.join(", ", Collections.nCopies(columnNames.size(), "?"));
-        String sql = "INSERT INTO " + databaseName + "." + tableName +
-                " (" + joinedColumns + ") VALUES (" + placeholders + ")";
+    /**
+     * Upsert many entities using JDBC batching, like {@link #insertBatch}.
+     * Keys are copied back from each statement; with {@code rewriteBatchedStatements=true} Connector/J
+     * derives them from the first key of each multi-row statement, which is only right for inserted rows.
+     * Keys that are not generated are read back as in {@link #upsert}, with one IN query per chunk of rows.
+     */
+    @Override
+    public void upsertBatch(TableMeta<?> tableMeta, Collection<?> entities) {
+        if (entities.isEmpty()) return;
+        Log.d("SQLUtils", "Batch upserting " + entities.size() + " entities into table: " + tableMeta.getTableName());
+        SQLTemplates templates = templates(tableMeta);
+        writeBatch(tableMeta, entities, templates.getUpsertSql(), templates.getUpsertColumns(), true);
+        ColumnMeta primaryKey = tableMeta.getPrimaryKeyColumn();
+        for (Object entity : entities) {
+            evict(tableMeta, primaryKey.getValue(entity));
+        }
+    }
 
-        Log.d("SQLUtils", "Generated SQL: " + sql);
+    // Run a batched INSERT or upsert in chunks, taking back generated keys
+    private void writeBatch(TableMeta<?> tableMeta, Collection<?> entities, String sql, ColumnMeta[] columns, boolean upsert) {
+        boolean generatedKeys = tableMeta.getPrimaryKeyColumn().isAutoIncrement();
 
+        PooledConnection connection = acquire();
         try {
-            connect();
-            PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            for (int i = 0; i < values.size(); i++) {
-                stmt.setObject(i + 1, values.get(i));
-            }
-            stmt.executeUpdate();
-            ResultSet rs = stmt.getGeneratedKeys();
-            if(rs.next()) {
-                Object generatedId = rs.getObject(1);
-                for (Field field : entity.getClass().getDeclaredFields()){
-                    if (field.isAnnotationPresent(PrimaryKey.class)) {
-                        Class<?> pkType = field.getType();
-
-                        field.setAccessible(true);
-
-                        if (pkType == int.class || pkType == Integer.class) {
-                            field.set(entity, ((Number) generatedId).intValue());
-                        } else if (pkType == long.class || pkType == Long.class) {
-                            field.set(entity, ((Number) generatedId).longValue());
-                        } else if (pkType == String.class) {
-                            field.set(entity, generatedId.toString());
-                        } else {
-                            throw new RuntimeException("Unsupported primary key type: " + pkType.getName());
+            inTransaction(connection.getConnection(), () -> {
+                // Insert each distinct new referenced entity once, ahead of the rows pointing at it
+                cascadeBatch(tableMeta, entities, false);
+
+                PreparedStatement stmt = generatedKeys
+                        ? connection.getStatementCache().prepareReturningKeys(sql)
+                        : connection.getStatementCache().prepare(sql);
+
+                List<Object> chunk = new ArrayList<>(Math.min(batchSize, entities.size()));
+                List<Object> collided = upsert ? new ArrayList<>() : null; // rows that may have kept another key
+                try {
+                    for (Object entity : entities) {
+                        Object[] values = insertValues(columns, entity);
+                        for (int i = 0; i < values.length; i++) {
+                            stmt.setObject(i + 1, values[i]);
                         }
-                        break;
+                        stmt.addBatch();
+                        chunk.add(entity);
+
+                        if (chunk.size() == batchSize) {
+                            executeInsertChunk(tableMeta, stmt, chunk, generatedKeys, collided);
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        executeInsertChunk(tableMeta, stmt, chunk, generatedKeys, collided);
                     }
+                } finally {
+                    stmt.clearBatch(); // a row that failed mid-chunk leaves the earlier ones queued on the cached statement
                 }
+                if (upsert) {
+                    readUpsertedKeys(tableMeta, collided, connection);
+                }
+            });
+            markWritten(tableMeta);
+            for (Object entity : entities) {
+                markPersisted(entity);
+                manage(tableMeta, entity);
+                snapshot(tableMeta, entity);
             }
-        } catch (SQLException | IllegalAccessException e) {
-            throw new RuntimeException("Failed to insert entity into " + tableName, e);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to batch write into " + tableMeta.getTableName(), e);
         } finally {
-            disconnect();
+            release();
         }
     }
 
+    // Whether an upsert's update count shows a plain insert. MySQL counts 1 for an inserted row and 2 for an updated one,
+    // but Connector/J counts found rows by default, which makes an unchanged collided row count 1 as well.
+    private boolean plainlyInserted(int updateCount) {
+        return updateCount == 1 && affectedRows;
+    }
 
-    @Override
-    public void update(TableMeta<?> tableMeta, Object entity) {
-        Log.d("SQLUtils", "Updating entity in table: " + tableMeta.getTableName());
-        String tableName = tableMeta.getTableName();
-        List<String> assignments = new ArrayList<>();
-        List<Object> values = new ArrayList<>();
-        Object primaryKeyValue = null;
+    // An upsert that collided on a unique column updated a row that keeps its own key. A generated key comes back
+    // through LAST_INSERT_ID; any other is read by each entity's value in its first non-null unique column,
+    // with one IN query per chunk of values.
+    private void readUpsertedKeys(TableMeta<?> tableMeta, List<?> entities, PooledConnection connection) throws SQLException {
+        ColumnMeta primaryKey = tableMeta.getPrimaryKeyColumn();
+        if (primaryKey.isAutoIncrement() || entities.isEmpty()) return;
+
+        Map<ColumnMeta, Map<Object, List<Object>>> byColumn = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            for (ColumnMeta column : tableMeta.getColumns()) {
+                if (column.isPrimaryKey() || !column.isUnique()) continue;
+                Object value = columnValue(column, entity);
+                if (value == null) continue;
+                byColumn.computeIfAbsent(column, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(value, k -> new ArrayList<>()).add(entity);
+                break;
+            }
+        }
 
-        try {
-            for(ColumnMeta column : tableMeta.getColumns()){
-                Field field = entity.getClass().getDeclaredField(column.getFieldName());
-                field.setAccessible(true);
-                Object value = field.get(entity);
+        for (Map.Entry<ColumnMeta, Map<Object, List<Object>>> entry : byColumn.entrySet()) {
+            String column = entry.getKey().getName();
+            String prefix = "SELECT " + primaryKey.getName() + ", " + column + " FROM " +
+                    templates(tableMeta).getQualifiedTableName() + " WHERE " + column + " IN (";
+            List<Object> values = new ArrayList<>(entry.getValue().keySet());
+            int chunkSize = inListChunkSize(prefix.length(), values);
+            for (int start = 0; start < values.size(); start += chunkSize) {
+                Object[] chunk = InLists.pad(values.subList(start, Math.min(start + chunkSize, values.size())), chunkSize);
+                PreparedStatement stmt = connection.getStatementCache().prepare(prefix + InLists.placeholders(chunk.length) + ")");
+                for (int i = 0; i < chunk.length; i++) {
+                    stmt.setObject(i + 1, chunk[i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        List<Object> matched = entry.getValue().get(rs.getObject(2));
+                        if (matched == null) continue;
+                        for (Object entity : matched) {
+                            setGeneratedKey(tableMeta, entity, rs.getObject(1));
+                        }
+                    }
+                }
+            }
+        }
+    }
 
-                if(column.isPrimaryKey()){
-                    primaryKeyValue = value;
-                    continue; // Skip primary key column for assignment
+    // collided, when not null, receives the upserted rows that were not plainly inserted
+    private void executeInsertChunk(TableMeta<?> tableMeta, PreparedStatement stmt, List<Object> chunk, boolean generatedKeys,
+                                    List<Object> collided) throws SQLException {
+        int[] counts = stmt.executeBatch();
+        if (collided != null) {
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i >= counts.length || !plainlyInserted(counts[i])) collided.add(chunk.get(i));
+            }
+        }
+        if (generatedKeys) {
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                int i = 0;
+                while (rs.next() && i < chunk.size()) {
+                    setGeneratedKey(tableMeta, chunk.get(i++), rs.getObject(1));
+                }
+                if (i < chunk.size()) {
+                    Log.e("SQLUtils", "Driver returned " + i + " generated keys for " + chunk.size() + " rows in " + tableMeta.getTableName());
                 }
+            }
+        }
+        chunk.clear();
+    }
+
+    // Write the entities an entity references, as its @ManyToOne cascade settings allow:
+    // new ones are inserted under PERSIST, persisted ones are updated under UPDATE when updating
+    private void cascade(TableMeta<?> tableMeta, Object entity, boolean updating) {
+        for (ColumnMeta column : tableMeta.getColumns()) {
+            if (!column.isForeignKey()) continue;
+            Object related = referencedEntity(column, entity);
+            if (related == null) continue;
+
+            TableMeta<?> relatedMeta = JORM.getInstance().repository(related.getClass());
+            if (!isPersisted(relatedMeta, related)) {
+                if (column.cascadesPersist()) insert(relatedMeta, related);
+            } else if (updating && column.cascadesUpdate()) {
+                update(relatedMeta, related);
+            }
+        }
+    }
 
-                if(!column.isAutoIncrement()) {
-                    assignments.add(column.getName() + " = ?");
-                    values.add(value);
+    // cascade for many entities, writing each distinct referenced entity once in a batch per table
+    private void cascadeBatch(TableMeta<?> tableMeta, Collection<?> entities, boolean updating) {
+        for (ColumnMeta column : tableMeta.getColumns()) {
+            if (!column.isForeignKey()) continue;
+            if (!column.cascadesPersist() && !(updating && column.cascadesUpdate())) continue;
+
+            for (Map.Entry<Class<?>, List<Object>> entry : distinctReferences(column, entities).entrySet()) {
+                TableMeta<?> relatedMeta = JORM.getInstance().repository(entry.getKey());
+                List<Object> created = new ArrayList<>();
+                List<Object> persisted = new ArrayList<>();
+                for (Object related : entry.getValue()) {
+                    (isPersisted(relatedMeta, related) ? persisted : created).add(related);
+                }
+                if (!created.isEmpty() && column.cascadesPersist()) {
+                    insertBatch(relatedMeta, created);
+                }
+                if (!persisted.isEmpty() && updating && column.cascadesUpdate()) {
+                    updateBatch(relatedMeta, persisted);
                 }
             }
+        }
+    }
 
-            if(primaryKeyValue == null) {
-                throw new RuntimeException("Primary key value is null");
+    /**
+     * Whether an entity already has a row: JORM loaded or wrote it and has not deleted it, it is the session's
+     * instance for its key, or it has a generated key that is set. An entity with an assigned key that JORM
+     * has not seen counts as new. A rolled-back transaction undoes all of these for its writes.
+     */
+    private boolean isPersisted(TableMeta<?> tableMeta, Object entity) {
+        if (persisted.contains(entity)) return true;
+
+        ColumnMeta primaryKey = tableMeta.getPrimaryKeyColumn();
+        Object id = primaryKey.getValue(entity);
+        if (id == null) return false;
+
+        Session session = JORM.getInstance().getCurrentSession();
+        if (session != null && session.get(tableMeta.getEntityClass(), id) == entity) return true;
+
+        if (primaryKey.isAutoIncrement()) {
+            return !(id instanceof Number && ((Number) id).longValue() == 0);
+        }
+        return false;
+    }
+
+    // Distinct (by identity) non-null entities referenced through a foreign key column, grouped by class
+    private Map<Class<?>, List<Object>> distinctReferences(ColumnMeta column, Collection<?> entities) {
+        Map<Class<?>, List<Object>> parents = new LinkedHashMap<>();
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object entity : entities) {
+            Object related = referencedEntity(column, entity);
+            if (related != null && seen.add(related)) {
+                parents.computeIfAbsent(related.getClass(), k -> new ArrayList<>()).add(related);
+            }
+        }
+        return parents;
+    }
+
+    // Values bound by the insert template, with foreign keys resolved to the referenced primary key
+    private Object[] insertValues(ColumnMeta[] columns, Object entity) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columnValue(columns[i], entity);
+            if (columns[i].isAutoIncrement() && values[i] instanceof Number && ((Number) values[i]).longValue() == 0) {
+                values[i] = null; // unset generated key: let the server assign one
+            }
+            if (values[i] == null && columns[i].isForeignKey() && !columns[i].isNullable()) {
+                throw new RuntimeException("Non-nullable foreign key is null: " + columns[i].getName());
+            }
+        }
+        return values;
+    }
+
+    // Run work in a transaction on the leased connection, or as part of the one already open on it
+    private void inTransaction(Connection connection, SQLWork work) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            work.run();
+            return;
+        }
+
+        Lease current = lease.get();
+        current.scope = new Scope();
+        boolean committed = false;
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            connection.commit();
+            committed = true;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+            settle(current.scope, committed);
+            current.scope = null;
+        }
+    }
+
+    /**
+     * Start a transaction on a connection bound to this thread until {@link #commit()} or {@link #rollback()}.
+     * Every operation on the thread in between runs on that connection.
+     */
+    @Override
+    public void begin(TransactionOptions options) {
+        if (isTransactionActive()) {
+            throw new IllegalStateException("A transaction is already active on this thread.");
+        }
+        PooledConnection connection = acquire(); // held until the transaction ends
+        Lease current = lease.get();
+        try {
+            Connection jdbc = connection.getConnection();
+            current.previousIsolation = jdbc.getTransactionIsolation();
+            current.previousReadOnly = jdbc.isReadOnly();
+            if (options.getIsolation() != Isolation.DEFAULT) {
+                jdbc.setTransactionIsolation(options.getIsolation().getLevel());
             }
+            if (options.isReadOnly()) {
+                jdbc.setReadOnly(true);
+            }
+            jdbc.setAutoCommit(false);
+            current.transaction = true;
+            current.scope = new Scope();
+        } catch (SQLException e) {
+            release();
+            throw new RuntimeException("Failed to begin transaction", e);
+        }
+    }
+
+    @Override
+    public void commit() {
+        endTransaction(true);
+    }
+
+    @Override
+    public void rollback() {
+        endTransaction(false);
+    }
 
-            String setClause = String.join(", ", assignments);
-            String sql = "UPDATE " + databaseName + "." + tableName + " SET " + setClause + " WHERE " + tableMeta.getPrimaryKeyColumn().getName() + " = ?";
+    @Override
+    public boolean isTransactionActive() {
+        Lease current = lease.get();
+        return current != null && current.transaction;
+    }
+
+    private void endTransaction(boolean commit) {
+        Lease current = lease.get();
+        if (current == null || !current.transaction) {
+            throw new IllegalStateException("No transaction is active on this thread.");
+        }
+        Connection jdbc = current.connection.getConnection();
+        boolean committed = false;
+        try {
+            if (commit) jdbc.commit();
+            else jdbc.rollback();
+            committed = commit;
+        } catch (SQLException e) {
+            if (commit) {
+                try {
+                    jdbc.rollback();
+                } catch (SQLException ignored) {
+                }
+            }
+            throw new RuntimeException("Failed to " + (commit ? "commit" : "roll back") + " transaction", e);
+        } finally {
+            current.transaction = false;
+            try {
+                jdbc.setAutoCommit(true);
+                jdbc.setTransactionIsolation(current.previousIsolation);
+                jdbc.setReadOnly(current.previousReadOnly);
+            } catch (SQLException e) {
+                Log.e("SQLUtils", "Failed to reset connection after transaction: " + e.getMessage());
+            }
+            settle(current.scope, committed);
+            current.scope = null;
+            release();
+        }
+    }
 
-                connect();
-                PreparedStatement stmt = connection.prepareStatement(sql);
-                int i = 1;
-                for(Object value : values){
-                    stmt.setObject(i++, value);
+    // Invalidate what the transaction wrote now that readers can see it; after a rollback, also put back
+    // the generated keys, snapshots and persisted entities it changed and forget the entities it inserted
+    private void settle(Scope scope, boolean committed) {
+        for (Map.Entry<TableMeta<?>, Set<Object>> entry : scope.written.entrySet()) {
+            entry.getKey().markWritten();
+            EntityCache cache = entry.getKey().getCache();
+            if (cache != null && entry.getValue().contains(ALL_ROWS)) {
+                cache.invalidateAll();
+            } else if (cache != null) {
+                for (Object primaryKeyValue : entry.getValue()) {
+                    cache.invalidate(primaryKeyValue);
                 }
+            }
+        }
+        if (committed) return;
 
-                stmt.setObject(i, primaryKeyValue);
+        for (Object entity : scope.added.entities()) {
+            persisted.remove(entity);
+        }
+        for (Object entity : scope.removed.entities()) {
+            persisted.add(entity);
+        }
+        for (Map.Entry<Object, Object[]> entry : scope.keys.entrySet()) {
+            ((ColumnMeta) entry.getValue()[0]).setValue(entry.getKey(), entry.getValue()[1]);
+        }
+        for (Map.Entry<Object, Object[]> entry : scope.snapshots.entries().entrySet()) {
+            if (entry.getValue() == NO_SNAPSHOT) snapshots.remove(entry.getKey());
+            else snapshots.put(entry.getKey(), entry.getValue());
+        }
+        Session session = JORM.getInstance().getCurrentSession();
+        if (session == null) return;
+        for (Object[] managed : scope.managed) {
+            Class<?> entityClass = (Class<?>) managed[0];
+            if (session.get(entityClass, managed[1]) == managed[2]) {
+                session.evict(entityClass, managed[1]);
+            }
+        }
+    }
+
+    @Override
+    public void transaction(Runnable work) {
+        PooledConnection connection = acquire();
+        try {
+            inTransaction(connection.getConnection(), work::run);
+        } catch (SQLException e) {
+            throw new RuntimeException("Transaction failed", e);
+        } finally {
+            release();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SQLWork {
+        void run() throws SQLException;
+    }
+
+    @Override
+    public void update(TableMeta<?> tableMeta, Object entity) {
+        Log.d("SQLUtils", "Updating entity in table: " + tableMeta.getTableName());
+        SQLTemplates templates = templates(tableMeta);
+        if (templates.getUpdateSql() == null) return; // Nothing but a primary key
+
+        try {
+            cascade(tableMeta, entity, true);
+            ColumnMeta[] columns = updateColumns(tableMeta, templates, entity);
+            if (columns.length == 0) {
+                Log.d("SQLUtils", "No changes to update in table: " + tableMeta.getTableName());
+                return;
+            }
+            Object[] values = updateValues(columns, entity);
+
+            PooledConnection connection = acquire();
+            try {
+                PreparedStatement stmt = connection.getStatementCache().prepare(updateSql(tableMeta, templates, columns));
+                for (int i = 0; i < values.length; i++) {
+                    stmt.setObject(i + 1, values[i]);
+                }
                 stmt.executeUpdate();
+            } finally {
+                release();
+            }
+            markWritten(tableMeta);
+            evict(tableMeta, values[values.length - 1]);
+            snapshot(tableMeta, entity);
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to update entity: " + e.getMessage());
-        } finally {
-            disconnect();
         }
     }
 
     @Override
     public void delete(TableMeta<?> tableMeta, Object entity) {
         Log.d("SQLUtils", "Deleting entity from table: " + tableMeta.getTableName());
-        Object primaryKeyValue = null;
 
         try {
-            for(ColumnMeta column : tableMeta.getColumns()){
-                Field field = entity.getClass().getDeclaredField(column.getFieldName());
-                field.setAccessible(true);
-                if(column.isPrimaryKey()){
-                    primaryKeyValue = field.get(entity);
-                    break;
-                }
-            }
+            Object primaryKeyValue = columnValue(tableMeta.getPrimaryKeyColumn(), entity);
 
             if(primaryKeyValue == null) {
                 throw new RuntimeException("Primary key value is null");
             }
 
-            String sql = "DELETE FROM " + databaseName + "." + tableMeta.getTableName() + " WHERE " + tableMeta.getPrimaryKeyColumn().getName() + " = ?";
-            connect();
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            stmt.setObject(1, primaryKeyValue);
-            stmt.executeUpdate();
+            PooledConnection connection = acquire();
+            try {
+                PreparedStatement stmt = connection.getStatementCache().prepare(templates(tableMeta).getDeleteSql());
+                stmt.setObject(1, primaryKeyValue);
+                stmt.executeUpdate();
+            } finally {
+                release();
+            }
+
+            markWritten(tableMeta);
+            evict(tableMeta, primaryKeyValue);
+            rememberSnapshot(entity);
+            snapshots.remove(entity);
+            forgetDeleted(tableMeta, Collections.singletonList(primaryKeyValue));
+            Session session = JORM.getInstance().getCurrentSession();
+            if (session != null) {
+                session.evict(tableMeta.getEntityClass(), primaryKeyValue);
+            }
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete entity: " + e.getMessage());
-        } finally {
-            disconnect();
         }
     }
 
+    /**
+     * Update many entities using JDBC batching, in chunks of {@link #getBatchSize()} rows,
+     * inside a single transaction.
+     */
     @Override
-    public <T> T selectById(TableMeta<T> tableMeta, Object primaryKeyValue) {
-        Log.d("SQLUtils", "Selecting entity from table: " + tableMeta.getTableName());
+    public void updateBatch(TableMeta<?> tableMeta, Collection<?> entities) {
+        SQLTemplates templates = templates(tableMeta);
+        if (entities.isEmpty() || templates.getUpdateSql() == null) return;
+        Log.d("SQLUtils", "Batch updating " + entities.size() + " entities in table: " + tableMeta.getTableName());
+
+        Map<List<ColumnMeta>, List<Object>> groups = new LinkedHashMap<>();
+
+        PooledConnection connection = acquire();
         try {
-            connect();
+            inTransaction(connection.getConnection(), () -> {
+                cascadeBatch(tableMeta, entities, true);
+
+                // One batch per distinct set of changed columns; unchanged entities are left out
+                for (Object entity : entities) {
+                    ColumnMeta[] columns = updateColumns(tableMeta, templates, entity);
+                    if (columns.length > 0) {
+                        groups.computeIfAbsent(Arrays.asList(columns), k -> new ArrayList<>()).add(entity);
+                    }
+                }
+                if (groups.isEmpty()) {
+                    Log.d("SQLUtils", "No changes to update in table: " + tableMeta.getTableName());
+                    return;
+                }
 
-            String sql = "SELECT * FROM " + databaseName + "." + tableMeta.getTableName() +
-                    " WHERE " + tableMeta.getPrimaryKeyColumn().getName() + " = ?";
-
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            stmt.setObject(1, primaryKeyValue);
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                T entity = tableMeta.getEntityClass().getDeclaredConstructor().newInstance();
-
-                for (ColumnMeta column : tableMeta.getColumns()) {
-                    Field field = tableMeta.getEntityClass().getDeclaredField(column.getFieldName());
-                    field.setAccessible(true);
-
-                    if (column.isForeignKey()) {
-                        Log.d("SQLUtils-Select-FK", "Processing foreign key: " + column.getName() + " -> " + column.getReferencedEntity().getSimpleName());
-                        Object fkValue = rs.getObject(column.getName());
-                        if (fkValue != null) {
-                            TableMeta<?> relatedMeta = JORM.getInstance().repository(column.getReferencedEntity());
-                            Object relatedEntity = JORM.getInstance().getAdapter().selectById(relatedMeta, fkValue);
-                            Log.d("SQLUtils-Select-FK", "Related entity: " + relatedEntity.getClass().getSimpleName() + " with ID: " + fkValue);
-                            field.set(entity, relatedEntity);
-                        } else {
-                            Log.e("SQLUtils-Select-FK", "Foreign key value is null for column: " + column.getName() + " in entity: " + tableMeta.getEntityClass().getSimpleName() + ". Setting field to null.");
-                            field.set(entity, null);
+                for (Map.Entry<List<ColumnMeta>, List<Object>> group : groups.entrySet()) {
+                    ColumnMeta[] columns = group.getKey().toArray(new ColumnMeta[0]);
+                    PreparedStatement stmt = connection.getStatementCache().prepare(updateSql(tableMeta, templates, columns));
+                    int pending = 0;
+                    try {
+                        for (Object entity : group.getValue()) {
+                            Object[] values = updateValues(columns, entity);
+                            for (int i = 0; i < values.length; i++) {
+                                stmt.setObject(i + 1, values[i]);
+                            }
+                            stmt.addBatch();
+
+                            if (++pending == batchSize) {
+                                stmt.executeBatch();
+                                pending = 0;
+                            }
+                        }
+                        if (pending > 0) {
+                            stmt.executeBatch();
                         }
-                    } else {
-                        field.set(entity, rs.getObject(column.getName()));
+                    } finally {
+                        stmt.clearBatch(); // a row that failed mid-chunk leaves the earlier ones queued on the cached statement
                     }
                 }
-
-                return entity;
-            } else {
-                return null; // No entity found
+            });
+            if (!groups.isEmpty()) markWritten(tableMeta);
+            ColumnMeta primaryKey = tableMeta.getPrimaryKeyColumn();
+            for (List<Object> group : groups.values()) {
+                for (Object entity : group) {
+                    evict(tableMeta, primaryKey.getValue(entity));
+                    snapshot(tableMeta, entity);
+                }
             }
-
-
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Failed to access primary key field: " + e.getMessage());
-        } catch (NoSuchFieldException e) {
-            throw new RuntimeException("Primary key field not found: " + e.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to select entity: " + e.getMessage());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to batch update " + tableMeta.getTableName(), e);
         } finally {
-            disconnect();
+            release();
         }
     }
 
-    public <T> List<T> selectAll(TableMeta<T> tableMeta) {
-        Log.d("SQLUtils", "Selecting all from table: " + tableMeta.getTableName());
+    /**
+     * Delete rows by primary key with {@code DELETE ... WHERE pk IN (...)}, inside a single transaction.
+     * Keys are split into chunks small enough for the server's max_allowed_packet.
+     *
+     * @return The number of rows deleted.
+     */
+    @Override
+    public int deleteByIds(TableMeta<?> tableMeta, Collection<?> ids) {
+        if (ids.isEmpty()) return 0;
+        Log.d("SQLUtils", "Deleting " + ids.size() + " rows from table: " + tableMeta.getTableName());
 
-        String sql = "SELECT * FROM " + databaseName + "." + tableMeta.getTableName();
-        List<T> results = new ArrayList<>();
+        String prefix = "DELETE FROM " + databaseName + "." + tableMeta.getTableName() +
+                " WHERE " + tableMeta.getPrimaryKeyColumn().getName() + " IN (";
+        List<Object> keys = new ArrayList<>(ids);
+        int chunkSize = inListChunkSize(prefix.length(), keys);
+        int[] deleted = {0};
 
+        PooledConnection connection = acquire();
         try {
-            connect();
-            PreparedStatement stmt = connection.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                T entity = tableMeta.getEntityClass().getDeclaredConstructor().newInstance();
-
-                for (ColumnMeta column : tableMeta.getColumns()) {
-                    Field field = tableMeta.getEntityClass().getDeclaredField(column.getFieldName());
-                    field.setAccessible(true);
-
-                    if (column.isForeignKey()) {
-                        Object fkValue = rs.getObject(column.getName());
-                        if (fkValue != null) {
-                            TableMeta<?> relatedMeta = JORM.getInstance().repository(column.getReferencedEntity());
-                            Object relatedEntity = JORM.getInstance().getAdapter().selectById(relatedMeta, fkValue);
-                            field.set(entity, relatedEntity);
-                        } else {
-                            field.set(entity, null);
-                        }
-                    } else {
-                        field.set(entity, rs.getObject(column.getName()));
+            inTransaction(connection.getConnection(), () -> {
+                for (int start = 0; start < keys.size(); start += chunkSize) {
+                    Object[] chunk = InLists.pad(keys.subList(start, Math.min(start + chunkSize, keys.size())), chunkSize);
+                    String sql = prefix + InLists.placeholders(chunk.length) + ")";
+
+                    PreparedStatement stmt = connection.getStatementCache().prepare(sql);
+                    for (int i = 0; i < chunk.length; i++) {
+                        stmt.setObject(i + 1, chunk[i]);
                     }
+                    deleted[0] += stmt.executeUpdate();
                 }
-
-                results.add(entity);
+            });
+            markWritten(tableMeta);
+            Session session = JORM.getInstance().getCurrentSession();
+            for (Object key : keys) {
+                evict(tableMeta, key);
+                if (session != null) session.evict(tableMeta.getEntityClass(), key);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch data", e);
+            forgetDeleted(tableMeta, keys);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete from " + tableMeta.getTableName(), e);
         } finally {
-            disconnect();
+            release();
         }
+        return deleted[0];
+    }
 
+    /**
+     * Update the given columns of every row matching whereClause with one statement.
+     * The rows are never loaded, so everything JORM holds for the table is dropped afterwards:
+     * the shared cache, cached queries, dirty-checking snapshots and the session's instances.
+     */
+    @Override
+    public int updateWhere(TableMeta<?> tableMeta, List<String> columns, String whereClause, Object... params) {
+        Log.d("SQLUtils", "Updating " + columns + " in table: " + tableMeta.getTableName() + " where " + whereClause);
+        List<String> assignments = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            assignments.add(column + " = ?");
+        }
+        String sql = "UPDATE " + databaseName + "." + tableMeta.getTableName() +
+                " SET " + String.join(", ", assignments) + " WHERE " + whereClause;
+        return executeWhere(tableMeta, sql, params);
+    }
+
+    // Delete every row matching whereClause with one statement, then drop what JORM holds for the table as updateWhere does
+    @Override
+    public int deleteWhere(TableMeta<?> tableMeta, String whereClause, Object... params) {
+        Log.d("SQLUtils", "Deleting from table: " + tableMeta.getTableName() + " where " + whereClause);
+        String sql = "DELETE FROM " + databaseName + "." + tableMeta.getTableName() + " WHERE " + whereClause;
+        return executeWhere(tableMeta, sql, params);
+    }
+
+    private int executeWhere(TableMeta<?> tableMeta, String sql, Object[] params) {
+        PooledConnection connection = acquire();
+        try {
+            PreparedStatement stmt = connection.getStatementCache().prepare(sql);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            int count = stmt.executeUpdate();
+            invalidateTable(tableMeta);
+            return count;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to write to " + tableMeta.getTableName(), e);
+        } finally {
+            release();
+        }
+    }
+
+    // Values bound by an update: assigned columns, then the primary key
+    private Object[] updateValues(ColumnMeta[] columns, Object entity) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columnValue(columns[i], entity);
+        }
+
+        if (values[values.length - 1] == null) {
+            throw new RuntimeException("Primary key value is null");
+        }
+        return values;
+    }
+
+    // Columns an update should assign followed by the primary key: all of them without a snapshot,
+    // only the changed ones with one, and none at all when nothing changed
+    private ColumnMeta[] updateColumns(TableMeta<?> tableMeta, SQLTemplates templates, Object entity) {
+        ColumnMeta[] all = templates.getUpdateColumns();
+        Object[] snapshot = dirtyChecking ? snapshots.get(entity) : null;
+        if (snapshot == null) return all;
+
+        List<ColumnMeta> changed = new ArrayList<>();
+        for (int i = 0; i < all.length - 1; i++) {
+            ColumnMeta column = all[i];
+            if (!Objects.deepEquals(columnValue(column, entity), snapshot[columnIndex(tableMeta, column)])) {
+                changed.add(column);
+            }
+        }
+        if (changed.isEmpty()) return new ColumnMeta[0];
+        if (changed.size() == all.length - 1) return all;
+        changed.add(all[all.length - 1]);
+        return changed.toArray(new ColumnMeta[0]);
+    }
+
+    // The template for a full update, otherwise an UPDATE of just the given columns
+    private String updateSql(TableMeta<?> tableMeta, SQLTemplates templates, ColumnMeta[] columns) {
+        if (columns == templates.getUpdateColumns()) return templates.getUpdateSql();
+        List<String> assignments = new ArrayList<>();
+        for (int i = 0; i < columns.length - 1; i++) {
+            assignments.add(columns[i].getName() + " = ?");
+        }
+        return "UPDATE " + databaseName + "." + tableMeta.getTableName() + " SET " + String.join(", ", assignments) +
+                " WHERE " + columns[columns.length - 1].getName() + " = ?";
+    }
+
+    // Remember an entity's column values as they now are in the database
+    private void snapshot(TableMeta<?> tableMeta, Object entity) {
+        if (!dirtyChecking) return;
+        ColumnMeta[] columns = tableMeta.getColumns();
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Object value = columnValue(columns[i], entity);
+            values[i] = value instanceof byte[] ? ((byte[]) value).clone() : value;
+        }
+        rememberSnapshot(entity);
+        snapshots.put(entity, values);
+    }
+
+    // Record that an entity has a row, to be forgotten again if the open transaction rolls back
+    private void markPersisted(Object entity) {
+        if (!persisted.add(entity)) return;
+        Lease current = lease.get();
+        if (current != null && current.scope != null && !current.scope.removed.remove(entity)) {
+            current.scope.added.add(entity);
+        }
+    }
+
+    // Forget every instance of the deleted rows, so none counts as persisted or keeps a snapshot;
+    // the open transaction puts them back if it rolls back
+    private void forgetDeleted(TableMeta<?> tableMeta, Collection<?> primaryKeys) {
+        Lease current = lease.get();
+        for (Object entity : persisted.removeByKey(tableMeta.getEntityClass(), tableMeta.getPrimaryKeyColumn(), primaryKeys)) {
+            if (current != null && current.scope != null && !current.scope.added.remove(entity)) {
+                current.scope.removed.add(entity);
+            }
+            rememberSnapshot(entity);
+            snapshots.remove(entity);
+        }
+    }
+
+    // Keep the snapshot an entity had before the open transaction first changed it
+    private void rememberSnapshot(Object entity) {
+        Lease current = lease.get();
+        if (current != null && current.scope != null && current.scope.snapshots.get(entity) == null) {
+            Object[] previous = snapshots.get(entity);
+            current.scope.snapshots.put(entity, previous != null ? previous : NO_SNAPSHOT);
+        }
+    }
+
+    // Largest IN-list that keeps a statement under max_allowed_packet, capped at maxInListSize
+    private int inListChunkSize(int sqlLength, List<?> values) {
+        int widest = 1;
+        for (Object value : values) {
+            // Client-side prepared statements inline each value: quoted literal plus separator
+            int width = (value == null ? 4 : value.toString().length()) + 4;
+            if (value instanceof byte[]) width = ((byte[]) value).length * 2 + 4;
+            widest = Math.max(widest, width);
+        }
+        long budget = (long) (maxAllowedPacket() * 0.9) - sqlLength;
+        long fits = Math.max(1, budget / widest);
+        return (int) Math.min(maxInListSize, fits);
+    }
+
+    private long maxAllowedPacket() {
+        if (maxAllowedPacket > 0) {
+            return maxAllowedPacket;
+        }
+
+        PooledConnection connection = acquire();
+        try (Statement stmt = connection.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT @@max_allowed_packet")) {
+            maxAllowedPacket = rs.next() ? rs.getLong(1) : DEFAULT_MAX_ALLOWED_PACKET;
+        } catch (SQLException e) {
+            Log.e("SQLUtils", "Could not read max_allowed_packet, assuming " + DEFAULT_MAX_ALLOWED_PACKET + ": " + e.getMessage());
+            maxAllowedPacket = DEFAULT_MAX_ALLOWED_PACKET;
+        } finally {
+            release();
+        }
+        return maxAllowedPacket;
+    }
+
+    @Override
+    public <T> T selectById(TableMeta<T> tableMeta, Object primaryKeyValue) {
+        Log.d("SQLUtils", "Selecting entity from table: " + tableMeta.getTableName());
+        Session session = JORM.getInstance().getCurrentSession();
+        if (session != null) {
+            T managed = session.get(tableMeta.getEntityClass(), primaryKeyValue);
+            if (managed != null) return managed;
+        }
+        EntityCache cache = tableMeta.getCache();
+        if (cache != null) {
+            Object[] row = cache.get(primaryKeyValue);
+            if (row != null) {
+                List<Object[]> rows = new ArrayList<>();
+                rows.add(row);
+                return hydrate(tableMeta, rows, new LoadContext()).get(0);
+            }
+        }
+        List<T> results = select(tableMeta, templates(tableMeta).getSelectByIdSql(), primaryKeyValue);
+        return results.isEmpty() ? null : results.get(0); // No entity found
+    }
+
+    @Override
+    public <T> List<T> selectByIds(TableMeta<T> tableMeta, Collection<?> ids) {
+        Log.d("SQLUtils", "Selecting " + ids.size() + " entities from table: " + tableMeta.getTableName());
+        if (ids.isEmpty()) return new ArrayList<>();
+        LoadContext context = new LoadContext();
+        List<T> results = new ArrayList<>();
+        Set<Object> missing = new LinkedHashSet<>();
+        for (Object id : ids) {
+            T managed = tableMeta.getEntityClass().cast(context.get(tableMeta.getEntityClass(), id));
+            if (managed != null) results.add(managed);
+            else missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            results.addAll(loadByIds(tableMeta, missing, context));
+        }
         return results;
     }
 
+    public <T> List<T> selectAll(TableMeta<T> tableMeta) {
+        Log.d("SQLUtils", "Selecting all from table: " + tableMeta.getTableName());
+        return select(tableMeta, templates(tableMeta).getSelectAllSql());
+    }
+
     @Override
     public <T> List<T> selectWhere(TableMeta<T> tableMeta, String whereClause, Object... params) {
         Log.d("SQLUtils", "Selecting with where clause: " + whereClause);
-        String sql = "SELECT * FROM " + databaseName + "." + tableMeta.getTableName() + " WHERE " + whereClause;
-        List<T> results = new ArrayList<>();
+        String sql = templates(tableMeta).getSelectAllSql() + " WHERE " + whereClause;
+        List<T> results = select(tableMeta, sql, params);
+
+        return results.isEmpty() ? null : results;
+    }
 
+    /**
+     * Read only the given columns of matching rows, as raw JDBC values in the same order.
+     * Nothing is hydrated: rows bypass the session and the shared cache, and foreign keys stay keys.
+     */
+    @Override
+    public List<Object[]> selectColumns(TableMeta<?> tableMeta, List<String> columns, String whereClause, Object... params) {
+        Log.d("SQLUtils", "Selecting " + columns + " from table: " + tableMeta.getTableName() + " where " + whereClause);
+        String sql = "SELECT " + String.join(", ", columns) + " FROM " + databaseName + "." + tableMeta.getTableName() +
+                " WHERE " + whereClause;
+        List<Object[]> rows = new ArrayList<>();
+
+        PooledConnection connection = acquire();
         try {
-            connect();
-            PreparedStatement stmt = connection.prepareStatement(sql);
+            PreparedStatement stmt = connection.getStatementCache().prepare(sql);
             for (int i = 0; i < params.length; i++) {
                 stmt.setObject(i + 1, params[i]);
             }
-            ResultSet rs = stmt.executeQuery();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readRow(rs, columns.size()));
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch data", e);
+        } finally {
+            release();
+        }
+    }
 
-            while (rs.next()) {
-                T entity = tableMeta.getEntityClass().getDeclaredConstructor().newInstance();
+    // Drop a written row from the shared cache; runs once the write is done so no concurrent read re-caches the old row.
+    // Inside a transaction the row is dropped again when the transaction ends, as readers see the old row until then.
+    private void evict(TableMeta<?> tableMeta, Object primaryKeyValue) {
+        EntityCache cache = tableMeta.getCache();
+        if (cache != null && primaryKeyValue != null) {
+            cache.invalidate(primaryKeyValue);
+            Lease current = lease.get();
+            if (current != null && current.scope != null) {
+                current.scope.written.computeIfAbsent(tableMeta, k -> new HashSet<>()).add(primaryKeyValue);
+            }
+        }
+    }
 
-                for (ColumnMeta column : tableMeta.getColumns()) {
-                    Field field = tableMeta.getEntityClass().getDeclaredField(column.getFieldName());
-                    field.setAccessible(true);
+    // Invalidate cached query results for a table, again at the end of the transaction if one is open
+    private void markWritten(TableMeta<?> tableMeta) {
+        tableMeta.markWritten();
+        Lease current = lease.get();
+        if (current != null && current.scope != null) {
+            current.scope.written.computeIfAbsent(tableMeta, k -> new HashSet<>());
+        }
+    }
 
-                    if (column.isForeignKey()) {
-                        Object fkValue = rs.getObject(column.getName());
-                        if (fkValue != null) {
-                            TableMeta<?> relatedMeta = JORM.getInstance().repository(column.getReferencedEntity());
-                            Object relatedEntity = JORM.getInstance().getAdapter().selectById(relatedMeta, fkValue);
-                            field.set(entity, relatedEntity);
-                        } else {
-                            field.set(entity, null);
-                        }
-                    } else {
-                        field.set(entity, rs.getObject(column.getName()));
+    // Forget every row of a table after a statement changed rows JORM did not load
+    private void invalidateTable(TableMeta<?> tableMeta) {
+        markWritten(tableMeta);
+        EntityCache cache = tableMeta.getCache();
+        if (cache != null) {
+            cache.invalidateAll();
+            Lease current = lease.get();
+            if (current != null && current.scope != null) {
+                current.scope.written.computeIfAbsent(tableMeta, k -> new HashSet<>()).add(ALL_ROWS);
+            }
+        }
+        snapshots.removeAll(tableMeta.getEntityClass());
+        Session session = JORM.getInstance().getCurrentSession();
+        if (session != null) {
+            session.evictAll(tableMeta.getEntityClass());
+        }
+    }
+
+    // Make a newly inserted entity the session's instance for its key, so later loads return it
+    private void manage(TableMeta<?> tableMeta, Object entity) {
+        Session session = JORM.getInstance().getCurrentSession();
+        if (session == null) return;
+        Object primaryKeyValue = tableMeta.getPrimaryKeyColumn().getValue(entity);
+        if (primaryKeyValue != null) {
+            session.put(tableMeta.getEntityClass(), primaryKeyValue, entity);
+            Lease current = lease.get();
+            if (current != null && current.scope != null) {
+                current.scope.managed.add(new Object[]{tableMeta.getEntityClass(), primaryKeyValue, entity});
+            }
+        }
+    }
+
+    // Value bound for a column: the field itself, or the referenced entity's primary key for a foreign key
+    private Object columnValue(ColumnMeta column, Object entity) {
+        Object value = column.getValue(entity);
+        if (column.isForeignKey() && value != null) {
+            if (value instanceof Ref) {
+                return ((Ref<?>) value).getId();
+            }
+            return JORM.getInstance().repository(value.getClass()).getPrimaryKeyColumn().getValue(value);
+        }
+        return value;
+    }
+
+    // The in-memory entity behind a foreign key field, or null when it is unset or an unloaded Ref
+    private Object referencedEntity(ColumnMeta column, Object entity) {
+        Object value = column.getValue(entity);
+        if (value instanceof Ref) {
+            return ((Ref<?>) value).getIfLoaded();
+        }
+        return value;
+    }
+
+    // Set a foreign key field to a loaded entity, wrapping it for Ref fields
+    private void assignReference(ColumnMeta column, Object entity, Object related) {
+        column.setValue(entity, column.isReference() && related != null ? Ref.of(related) : related);
+    }
+
+    private boolean isLazy(ColumnMeta column) {
+        if (!column.isReference()) return false;
+        FetchType fetchType = column.getFetchType();
+        if (fetchType == FetchType.DEFAULT) {
+            fetchType = JORM.getInstance().getDefaultFetchType();
+        }
+        return fetchType == FetchType.LAZY;
+    }
+
+    // Copy the key the database generated, or kept for an upserted row, onto the entity, converted to the primary key's type
+    private void setGeneratedKey(TableMeta<?> tableMeta, Object entity, Object generatedId) {
+        ColumnMeta primaryKey = tableMeta.getPrimaryKeyColumn();
+        Class<?> pkType = primaryKey.getType();
+        Lease current = lease.get();
+        if (current != null && current.scope != null && !current.scope.keys.containsKey(entity)) {
+            current.scope.keys.put(entity, new Object[]{primaryKey, primaryKey.getValue(entity)});
+        }
+
+        if (pkType == int.class || pkType == Integer.class) {
+            primaryKey.setValue(entity, ((Number) generatedId).intValue());
+        } else if (pkType == long.class || pkType == Long.class) {
+            primaryKey.setValue(entity, ((Number) generatedId).longValue());
+        } else if (pkType == String.class) {
+            primaryKey.setValue(entity, generatedId.toString());
+        } else {
+            throw new RuntimeException("Unsupported primary key type: " + pkType.getName());
+        }
+    }
+
+    // Run a SELECT and hydrate every row, resolving foreign keys in batches
+    @Override
+    public <T> List<T> select(TableMeta<T> tableMeta, String sql, Object... params) {
+        return load(tableMeta, sql, params, new LoadContext());
+    }
+
+    // Rows are read in full before foreign keys are resolved, since the nested lookups may reuse cached statements.
+    private <T> List<T> load(TableMeta<T> tableMeta, String sql, Object[] params, LoadContext context) {
+        List<Object[]> rows = new ArrayList<>();
+        ColumnMeta[] columns = tableMeta.getColumns();
+        EntityCache cache = tableMeta.getCache();
+        long generation = cache == null ? 0 : cache.generation();
+
+        PooledConnection connection = acquire();
+        try {
+            PreparedStatement stmt = connection.getStatementCache().prepare(sql);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readRow(rs, columns.length));
+                }
+            }
+            cacheRows(tableMeta, rows, generation);
+
+            return hydrate(tableMeta, rows, context);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch data", e);
+        } finally {
+            release();
+        }
+    }
+
+    // Offer rows just read to the table's shared cache, if it has one.
+    // Rows read inside a transaction may be its own uncommitted writes, so they are not shared.
+    private void cacheRows(TableMeta<?> tableMeta, List<Object[]> rows, long generation) {
+        EntityCache cache = tableMeta.getCache();
+        Lease current = lease.get();
+        if (cache == null || (current != null && current.scope != null)) return;
+        int pkIndex = columnIndex(tableMeta, tableMeta.getPrimaryKeyColumn());
+        for (Object[] row : rows) {
+            cache.put(row[pkIndex], row, generation);
+        }
+    }
+
+    // Templates select columns in TableMeta order
+    private static Object[] readRow(ResultSet rs, int columnCount) throws SQLException {
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    }
+
+    // Turn rows into entities, reusing instances already in the context, then resolve the new ones' relationships.
+    // Reused instances keep their fields as they are, so loads never overwrite an entity held by the session.
+    private <T> List<T> hydrate(TableMeta<T> tableMeta, List<Object[]> rows, LoadContext context) {
+        Class<T> entityClass = tableMeta.getEntityClass();
+        int pkIndex = columnIndex(tableMeta, tableMeta.getPrimaryKeyColumn());
+        List<T> results = new ArrayList<>(rows.size());
+        List<T> created = new ArrayList<>();
+        List<Object[]> createdRows = new ArrayList<>();
+        for (Object[] row : rows) {
+            T entity = entityClass.cast(context.get(entityClass, row[pkIndex]));
+            if (entity == null) {
+                entity = materialize(tableMeta, row);
+                context.put(entityClass, row[pkIndex], entity);
+                created.add(entity);
+                createdRows.add(row);
+            }
+            results.add(entity);
+        }
+
+        if (!created.isEmpty()) {
+            resolveReferences(tableMeta, created, createdRows, context, Collections.emptySet());
+            resolveCollections(tableMeta, created, context);
+            for (T entity : created) {
+                markPersisted(entity);
+            }
+            if (context.takesSnapshots()) {
+                for (T entity : created) {
+                    snapshot(tableMeta, entity);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Stream rows from a forward-only, read-only result set on a connection of its own.
+     * Rows are hydrated {@link #getBatchSize()} at a time, each chunk resolving its relationships
+     * with its own load context, so memory stays flat however many rows the query returns.
+     * The stream must be closed, e.g. with try-with-resources, unless it is read to the end.
+     * Inside a transaction the stream reads on the transaction's connection instead, so it sees its writes,
+     * and the driver buffers the result set, since a streaming one would block every other statement there.
+     */
+    @Override
+    public <T> Stream<T> stream(TableMeta<T> tableMeta, String whereClause, Object... params) {
+        Log.d("SQLUtils", "Streaming from table: " + tableMeta.getTableName() + (whereClause == null ? "" : " where " + whereClause));
+        String sql = templates(tableMeta).getSelectAllSql() + (whereClause == null ? "" : " WHERE " + whereClause);
+
+        Lease current = lease.get();
+        if (current != null && current.scope != null) {
+            PooledConnection connection = acquire(); // the transaction's; held by the stream until it is closed
+            return openStream(tableMeta, sql, params, connection, false, () -> release(current));
+        }
+
+        // Not the thread's lease: a streaming result set blocks every other statement on its connection
+        ConnectionPool streamPool = currentPool();
+        PooledConnection connection = streamPool.borrow();
+        return openStream(tableMeta, sql, params, connection, true, () -> streamPool.release(connection));
+    }
+
+    private <T> Stream<T> openStream(TableMeta<T> tableMeta, String sql, Object[] params, PooledConnection connection,
+                                     boolean streaming, Runnable release) {
+        PreparedStatement stmt = null;
+        try {
+            stmt = connection.getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (streaming) stmt.setFetchSize(streamFetchSize);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            RowCursor<T> cursor = new RowCursor<>(tableMeta, release, stmt, stmt.executeQuery());
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(cursor::close);
+        } catch (SQLException e) {
+            try {
+                if (stmt != null) stmt.close();
+            } catch (SQLException ignored) {
+            }
+            release.run();
+            throw new RuntimeException("Failed to open stream", e);
+        }
+    }
+
+    // Iterator over a streaming result set, hydrating one chunk of rows at a time
+    private class RowCursor<T> implements Iterator<T> {
+        private final TableMeta<T> tableMeta;
+        private final Runnable release; // gives the connection back
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private Iterator<T> chunk = Collections.emptyIterator();
+        private boolean closed;
+
+        RowCursor(TableMeta<T> tableMeta, Runnable release, PreparedStatement stmt, ResultSet rs) {
+            this.tableMeta = tableMeta;
+            this.release = release;
+            this.stmt = stmt;
+            this.rs = rs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (chunk.hasNext()) return true;
+            if (closed) return false;
+
+            int columnCount = tableMeta.getColumns().length;
+            List<Object[]> rows = new ArrayList<>(batchSize);
+            try {
+                while (rows.size() < batchSize && rs.next()) {
+                    rows.add(readRow(rs, columnCount));
+                }
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException("Failed to fetch data", e);
+            }
+            if (rows.size() < batchSize) {
+                close(); // exhausted; give the connection back before resolving relationships
+            }
+            if (rows.isEmpty()) return false;
+
+            // Never backed by the session, which would hold on to every streamed row, and without snapshots,
+            // which would copy every one; updating a streamed entity writes all its columns
+            chunk = hydrate(tableMeta, rows, new LoadContext(null, false)).iterator();
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return chunk.next();
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            try {
+                rs.close();
+                stmt.close();
+            } catch (SQLException e) {
+                Log.e("SQLUtils", "Failed to close stream: " + e.getMessage());
+            } finally {
+                release.run();
+            }
+        }
+    }
+
+    // Load rows by primary key with chunked IN (...) queries, each padded to its InLists bucket
+    private <T> List<T> loadByIds(TableMeta<T> tableMeta, Collection<?> ids, LoadContext context) {
+        List<T> results = new ArrayList<>(ids.size());
+        List<Object> keys = new ArrayList<>(ids);
+
+        EntityCache cache = tableMeta.getCache();
+        if (cache != null) {
+            List<Object[]> cached = new ArrayList<>();
+            List<Object> uncached = new ArrayList<>();
+            for (Object key : keys) {
+                Object[] row = cache.get(key);
+                if (row != null) cached.add(row);
+                else uncached.add(key);
+            }
+            if (!cached.isEmpty()) {
+                results.addAll(hydrate(tableMeta, cached, context));
+            }
+            keys = uncached;
+            if (keys.isEmpty()) return results;
+        }
+
+        String prefix = templates(tableMeta).getSelectAllSql() +
+                " WHERE " + tableMeta.getPrimaryKeyColumn().getName() + " IN (";
+        int chunkSize = inListChunkSize(prefix.length(), keys);
+
+        for (int start = 0; start < keys.size(); start += chunkSize) {
+            Object[] chunk = InLists.pad(keys.subList(start, Math.min(start + chunkSize, keys.size())), chunkSize);
+            String sql = prefix + InLists.placeholders(chunk.length) + ")";
+            results.addAll(load(tableMeta, sql, chunk, context));
+        }
+        return results;
+    }
+
+    // Set @ManyToOne fields, loading every referenced row not already in the context with one IN query per table
+    private void resolveReferences(TableMeta<?> tableMeta, List<?> entities, List<Object[]> rows, LoadContext context, Set<ColumnMeta> skip) {
+        ColumnMeta[] columns = tableMeta.getColumns();
+
+        for (int c = 0; c < columns.length; c++) {
+            ColumnMeta column = columns[c];
+            if (!column.isForeignKey() || skip.contains(column)) continue;
+
+            Class<?> referencedClass = column.getReferencedEntity();
+            if (isLazy(column)) {
+                // Hand out references without querying; ones already loaded in this load come pre-filled
+                for (int r = 0; r < rows.size(); r++) {
+                    Object fkValue = rows.get(r)[c];
+                    Object related = fkValue == null ? null : context.get(referencedClass, fkValue);
+                    column.setValue(entities.get(r), fkValue == null ? null :
+                            related != null ? Ref.of(related) : Ref.to(referencedClass, fkValue));
+                }
+                continue;
+            }
+
+            Set<Object> missing = new LinkedHashSet<>();
+            for (Object[] row : rows) {
+                if (row[c] != null && !context.contains(referencedClass, row[c])) {
+                    missing.add(row[c]);
+                }
+            }
+            if (!missing.isEmpty()) {
+                Log.d("SQLUtils-Select-FK", "Loading " + missing.size() + " " + referencedClass.getSimpleName() + " for foreign key: " + column.getName());
+                loadByIds(JORM.getInstance().repository(referencedClass), missing, context);
+            }
+
+            for (int r = 0; r < rows.size(); r++) {
+                Object fkValue = rows.get(r)[c];
+                Object related = fkValue == null ? null : context.get(referencedClass, fkValue);
+                if (fkValue != null && related == null) {
+                    Log.e("SQLUtils-Select-FK", "No " + referencedClass.getSimpleName() + " found for " + column.getName() + " = " + fkValue + ". Setting field to null.");
+                }
+                assignReference(column, entities.get(r), related);
+            }
+        }
+    }
+
+    // Fill @OneToMany fields: eager ones with one IN query per relationship grouped by parent, lazy ones with a LazyList
+    private void resolveCollections(TableMeta<?> tableMeta, List<?> entities, LoadContext context) {
+        List<RelationshipMeta> collections = new ArrayList<>();
+        for (RelationshipMeta relationship : tableMeta.getRelationships()) {
+            if (relationship.getType() == RelationshipMeta.Type.ONE_TO_MANY) {
+                collections.add(relationship);
+            }
+        }
+        if (collections.isEmpty()) return;
+
+        ColumnMeta primaryKey = tableMeta.getPrimaryKeyColumn();
+        Map<Object, Object> parents = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            parents.put(primaryKey.getValue(entity), entity);
+        }
+
+        for (RelationshipMeta relationship : collections) {
+            TableMeta<?> childTable = JORM.getInstance().repository(relationship.getTargetEntityClass());
+            ColumnMeta foreignKey = childForeignKey(tableMeta, childTable, relationship);
+
+            if (isLazy(relationship)) {
+                for (Map.Entry<Object, Object> parent : parents.entrySet()) {
+                    relationship.setValue(parent.getValue(), new LazyList<>(childTable, foreignKey.getName(), parent.getKey()));
+                }
+                continue;
+            }
+
+            Map<Object, List<Object>> children = new HashMap<>();
+            for (Object key : parents.keySet()) {
+                children.put(key, new ArrayList<>());
+            }
+
+            Log.d("SQLUtils-Select-FK", "Loading " + childTable.getEntityClass().getSimpleName() + " for " + parents.size() + " " + tableMeta.getEntityClass().getSimpleName());
+            List<Object> keys = new ArrayList<>(parents.keySet());
+            String prefix = templates(childTable).getSelectAllSql() + " WHERE " + foreignKey.getName() + " IN (";
+            int chunkSize = inListChunkSize(prefix.length(), keys);
+            for (int start = 0; start < keys.size(); start += chunkSize) {
+                Object[] chunk = InLists.pad(keys.subList(start, Math.min(start + chunkSize, keys.size())), chunkSize);
+                String sql = prefix + InLists.placeholders(chunk.length) + ")";
+                // The children's back-reference resolves from the context, so parents are not queried again
+                for (Object child : load(childTable, sql, chunk, context)) {
+                    List<Object> siblings = children.get(columnValue(foreignKey, child));
+                    if (siblings != null) siblings.add(child);
+                }
+            }
+
+            for (Map.Entry<Object, Object> parent : parents.entrySet()) {
+                relationship.setValue(parent.getValue(), children.get(parent.getKey()));
+            }
+        }
+    }
+
+    // The child's @ManyToOne column that points back at the parent table
+    private ColumnMeta childForeignKey(TableMeta<?> parentTable, TableMeta<?> childTable, RelationshipMeta relationship) {
+        String name = relationship.getForeignKeyFieldName();
+        ColumnMeta match = null;
+        for (ColumnMeta column : childTable.getColumns()) {
+            if (!column.isForeignKey() || column.getReferencedEntity() != parentTable.getEntityClass()) continue;
+            if (!name.isEmpty()) {
+                if (column.getName().equals(name) || column.getFieldName().equals(name)) return column;
+                continue;
+            }
+            if (match != null) {
+                throw new IllegalStateException(childTable.getEntityClass().getSimpleName() + " references " +
+                        parentTable.getEntityClass().getSimpleName() + " more than once; set foreignKey on @OneToMany " +
+                        relationship.getField().getName());
+            }
+            match = column;
+        }
+        if (match == null) {
+            throw new IllegalStateException("No @ManyToOne " + (name.isEmpty() ? "" : "'" + name + "' ") + "on " +
+                    childTable.getEntityClass().getSimpleName() + " references " + parentTable.getEntityClass().getSimpleName());
+        }
+        return match;
+    }
+
+    private boolean isLazy(RelationshipMeta relationship) {
+        FetchType fetchType = relationship.getFetchType();
+        if (fetchType == FetchType.DEFAULT) {
+            fetchType = JORM.getInstance().getDefaultFetchType();
+        }
+        return fetchType == FetchType.LAZY;
+    }
+
+    /**
+     * Select with @ManyToOne relationships loaded through LEFT JOINs, hydrating every table from one result set.
+     * Paths deeper than {@link #getMaxFetchJoins()} joins fall back to batched IN loading.
+     */
+    @Override
+    public <T> List<T> selectJoined(TableMeta<T> tableMeta, String whereClause, List<String> fetchPaths, Object... params) {
+        return selectJoined(planJoined(tableMeta, whereClause, fetchPaths), params);
+    }
+
+    /**
+     * Plan the joins, select list and SQL of a joined select once, for a query executed many times.
+     */
+    @Override
+    public <T> JoinedSelect<T> planJoined(TableMeta<T> tableMeta, String whereClause, List<String> fetchPaths) {
+        Log.d("SQLUtils", "Planning joins " + fetchPaths + " with where clause: " + whereClause);
+        JoinNode root = planJoins(tableMeta, fetchPaths);
+        List<JoinNode> nodes = new ArrayList<>();
+        root.collect(nodes);
+
+        // Columns are read by position; aliases only make the statement readable in logs
+        List<String> selectList = new ArrayList<>();
+        StringBuilder from = new StringBuilder(databaseName + "." + tableMeta.getTableName() + " " + root.alias);
+        int offset = 0;
+        for (JoinNode node : nodes) {
+            node.offset = offset;
+            for (ColumnMeta column : node.table.getColumns()) {
+                selectList.add(node.alias + "." + column.getName() + " AS " + node.alias + "_" + column.getName());
+            }
+            offset += node.table.getColumns().length;
+
+            if (node.parent != null) {
+                from.append(" LEFT JOIN ").append(databaseName).append(".").append(node.table.getTableName()).append(" ").append(node.alias)
+                        .append(" ON ").append(node.alias).append(".").append(node.table.getPrimaryKeyColumn().getName())
+                        .append(" = ").append(node.parent.alias).append(".").append(node.via.getName());
+            }
+        }
+        String sql = "SELECT " + String.join(", ", selectList) + " FROM " + from + " WHERE " + whereClause;
+        return new JoinedSelect<>(tableMeta, nodes, offset, sql);
+    }
+
+    @Override
+    public <T> List<T> selectJoined(JoinedSelect<T> select, Object... params) {
+        Log.d("SQLUtils", "Selecting with joins: " + select.getSql());
+        List<JoinNode> nodes = select.nodes;
+        List<Object[]> rows = new ArrayList<>();
+        LoadContext context = new LoadContext();
+        List<JoinedRows> loads = new ArrayList<>(nodes.size());
+        for (JoinNode node : nodes) {
+            loads.add(new JoinedRows(node));
+        }
+
+        PooledConnection connection = acquire();
+        try {
+            PreparedStatement stmt = connection.getStatementCache().prepare(select.getSql());
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = new Object[select.width];
+                    for (int i = 0; i < select.width; i++) {
+                        row[i] = rs.getObject(i + 1);
                     }
+                    rows.add(row);
                 }
+            }
 
-                results.add(entity);
+            List<T> results = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                Object[] entities = new Object[nodes.size()];
+                for (int n = 0; n < nodes.size(); n++) {
+                    JoinNode node = nodes.get(n);
+                    entities[n] = loads.get(n).hydrate(row, context);
+                    if (node.parent != null && loads.get(node.parent.index).isCreated(entities[node.parent.index])) {
+                        assignReference(node.via, entities[node.parent.index], entities[n]);
+                    }
+                }
+                results.add(select.table.getEntityClass().cast(entities[0]));
+            }
+
+            for (JoinedRows load : loads) {
+                cacheRows(load.node.table, load.rows, load.cacheGeneration);
             }
+
+            // Anything not covered by a join is resolved in batches, per table
+            for (JoinedRows load : loads) {
+                if (!load.entities.isEmpty()) {
+                    resolveReferences(load.node.table, load.entities, load.rows, context, load.node.joinedColumns());
+                    resolveCollections(load.node.table, load.entities, context);
+                    for (Object entity : load.entities) {
+                        markPersisted(entity);
+                        snapshot(load.node.table, entity);
+                    }
+                }
+            }
+
+            return results.isEmpty() ? null : results;
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch data", e);
         } finally {
-            disconnect();
+            release();
         }
+    }
 
-        return results.isEmpty() ? null : results;
+    // Turn dotted field paths into a tree of LEFT JOINs rooted at tableMeta
+    private JoinNode planJoins(TableMeta<?> tableMeta, List<String> fetchPaths) {
+        JoinNode root = new JoinNode(tableMeta, null, null, 0);
+        int joins = 0;
+
+        for (String path : fetchPaths) {
+            JoinNode current = root;
+            for (String segment : path.split("\\.")) {
+                JoinNode child = current.children.get(segment);
+                if (child == null) {
+                    ColumnMeta via = null;
+                    for (ColumnMeta column : current.table.getColumns()) {
+                        if (column.isForeignKey() && column.getFieldName().equals(segment)) {
+                            via = column;
+                            break;
+                        }
+                    }
+                    if (via == null) {
+                        throw new IllegalArgumentException("No @ManyToOne field '" + segment + "' on " +
+                                current.table.getEntityClass().getSimpleName() + " for fetch path " + path);
+                    }
+                    if (joins == maxFetchJoins) {
+                        Log.d("SQLUtils", "Fetch path " + path + " exceeds " + maxFetchJoins + " joins, loading the rest in batches");
+                        break;
+                    }
+                    child = new JoinNode(JORM.getInstance().repository(via.getReferencedEntity()), current, via, ++joins);
+                    current.children.put(segment, child);
+                }
+                current = child;
+            }
+        }
+        return root;
+    }
+
+    // What one execution of a joined select read for a JoinNode: the entities it created and the row slice each came from
+    private static class JoinedRows {
+        final JoinNode node;
+        final long cacheGeneration;
+
+        // Reused entities are left as they are
+        final List<Object> entities = new ArrayList<>();
+        final List<Object[]> rows = new ArrayList<>();
+        private final Set<Object> created = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        JoinedRows(JoinNode node) {
+            this.node = node;
+            this.cacheGeneration = node.table.getCache() == null ? 0 : node.table.getCache().generation();
+        }
+
+        Object hydrate(Object[] row, LoadContext context) {
+            TableMeta<?> table = node.table;
+            ColumnMeta[] columns = table.getColumns();
+            Object[] slice = Arrays.copyOfRange(row, node.offset, node.offset + columns.length);
+            Object primaryKey = slice[columnIndex(table, table.getPrimaryKeyColumn())];
+            if (primaryKey == null) return null; // no match for the LEFT JOIN
+
+            Object entity = context.get(table.getEntityClass(), primaryKey);
+            if (entity == null) {
+                entity = table.newInstance();
+                for (int i = 0; i < columns.length; i++) {
+                    if (!columns[i].isForeignKey()) {
+                        columns[i].setValue(entity, slice[i]);
+                    }
+                }
+                context.put(table.getEntityClass(), primaryKey, entity);
+                created.add(entity);
+                entities.add(entity);
+                rows.add(slice);
+            }
+            return entity;
+        }
+
+        boolean isCreated(Object entity) {
+            return entity != null && created.contains(entity);
+        }
+    }
+
+    // Build an entity from a row read in TableMeta column order; foreign keys are set by resolveReferences
+    private <T> T materialize(TableMeta<T> tableMeta, Object[] row) {
+        T entity = tableMeta.newInstance();
+        ColumnMeta[] columns = tableMeta.getColumns();
+
+        for (int i = 0; i < columns.length; i++) {
+            if (!columns[i].isForeignKey()) {
+                columns[i].setValue(entity, row[i]);
+            }
+        }
+
+        return entity;
+    }
+
+    private static int columnIndex(TableMeta<?> tableMeta, ColumnMeta column) {
+        ColumnMeta[] columns = tableMeta.getColumns();
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == column) return i;
+        }
+        throw new IllegalArgumentException("Column " + column.getName() + " is not part of " + tableMeta.getTableName());
     }
 }
@@ -0,0 +1,84 @@
+package dev.alortie.jorm.utils;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column values of each entity as last read from or written to the database, in TableMeta
+ * column order with foreign keys as key values. Entities are held weakly and matched by
+ * identity, so a snapshot goes away with its entity and equals() overrides don't matter.
+ * Safe for concurrent use without a lock, as every load on every thread goes through it.
+ */
+class Snapshots {
+    private final Map<Key, Object[]> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    static final class Key extends WeakReference<Object> {
+        private final int hash;
+
+        Key(Object entity, ReferenceQueue<Object> queue) {
+            super(entity, queue);
+            this.hash = System.identityHashCode(entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Object entity = get();
+            return entity != null && entity == ((Key) o).get();
+        }
+    }
+
+    Object[] get(Object entity) {
+        return snapshots.get(new Key(entity, null));
+    }
+
+    void put(Object entity, Object[] values) {
+        expunge();
+        snapshots.put(new Key(entity, queue), values);
+    }
+
+    void remove(Object entity) {
+        snapshots.remove(new Key(entity, null));
+    }
+
+    // Forget every snapshot of one entity class, e.g. after a bulk statement changed rows behind them
+    void removeAll(Class<?> entityClass) {
+        expunge();
+        snapshots.keySet().removeIf(key -> {
+            Object entity = key.get();
+            return entity == null || entity.getClass() == entityClass;
+        });
+    }
+
+    // The entities still alive and their values, by identity
+    Map<Object, Object[]> entries() {
+        Map<Object, Object[]> entries = new IdentityHashMap<>();
+        for (Map.Entry<Key, Object[]> entry : snapshots.entrySet()) {
+            Object entity = entry.getKey().get();
+            if (entity != null) entries.put(entity, entry.getValue());
+        }
+        return entries;
+    }
+
+    int size() {
+        expunge();
+        return snapshots.size();
+    }
+
+    private void expunge() {
+        Object key;
+        while ((key = queue.poll()) != null) {
+            snapshots.remove(key);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dev.alortie.jorm.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least-recently-used cache of prepared statements for a single connection, keyed by SQL text.
+ * Statements handed out by the cache stay owned by it: callers close their result sets but never the statement.
+ */
+public class StatementCache {
+    private static final String TAG = "StatementCache";
+    private static final String GENERATED_KEYS_PREFIX = "\u0000keys:";
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    StatementCache(Connection connection, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.connection = connection;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxSize) return false;
+                evictions.incrementAndGet();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get a prepared statement for the given SQL, preparing it on a miss.
+     *
+     * @param sql The SQL text.
+     * @return A statement with its parameters and batch cleared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Get a prepared statement that returns generated keys, preparing it on a miss.
+     *
+     * @param sql The SQL text.
+     * @return A statement with its parameters and batch cleared.
+     */
+    public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+        return prepare(GENERATED_KEYS_PREFIX + sql, sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    private PreparedStatement prepare(String key, String sql, int autoGeneratedKeys) throws SQLException {
+        PreparedStatement stmt = statements.get(key);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.incrementAndGet();
+            stmt.clearParameters();
+            stmt.clearBatch(); // rows a failed batch left queued must not run with the next one
+            return stmt;
+        }
+
+        misses.incrementAndGet();
+        stmt = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, stmt);
+        return stmt;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Close and forget every cached statement.
+     */
+    public void clear() {
+        List<PreparedStatement> toClose = new ArrayList<>(statements.values());
+        statements.clear();
+        for (PreparedStatement stmt : toClose) {
+            closeQuietly(stmt);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            Log.e(TAG, "Failed to close cached statement: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.alortie.jorm.utils;
+
+/**
+ * Settings applied to the connection for the length of one transaction.
+ */
+public class TransactionOptions {
+    private Isolation isolation = Isolation.DEFAULT;
+    private boolean readOnly = false;
+
+    public Isolation getIsolation() {
+        return isolation;
+    }
+
+    public TransactionOptions isolation(Isolation isolation) {
+        if (isolation == null) {
+            throw new IllegalArgumentException("isolation must not be null");
+        }
+        this.isolation = isolation;
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    // A read-only transaction lets InnoDB skip assigning a transaction id and undo tracking
+    public TransactionOptions readOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+}
@@ -0,0 +1,134 @@
+import Entities.Comment;
+import Entities.Post;
+import Entities.User;
+import dev.alortie.jorm.metadata.ColumnMeta;
+import dev.alortie.jorm.metadata.TableMeta;
+import dev.alortie.jorm.utils.Log;
+import dev.alortie.jorm.utils.LogLevel;
+import dev.alortie.jorm.utils.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
+/**
+ * Compares row mapping through per-row reflection (the previous SQLBuilder approach)
+ * with the cached accessors on ColumnMeta/TableMeta. No database is needed: rows are
+ * pre-built arrays in TableMeta column order, and foreign keys point at a fixed parent.
+ */
+public class HydrationBenchmark {
+    private static final int ROWS = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Log.setInstance(LogLevel.NONE);
+
+        TableMeta<User> users = ReflectionUtils.generateTableMeta(User.class);
+        TableMeta<Post> posts = ReflectionUtils.generateTableMeta(Post.class);
+        TableMeta<Comment> comments = ReflectionUtils.generateTableMeta(Comment.class);
+
+        User author = new User("author");
+        Post post = new Post(author, "post");
+
+        run(users, rows(users.getColumns(), null));
+        run(posts, rows(posts.getColumns(), author));
+        run(comments, rows(comments.getColumns(), post));
+    }
+
+    private static Object[][] rows(ColumnMeta[] columns, Object parent) {
+        Object[][] rows = new Object[ROWS][];
+        for (int r = 0; r < ROWS; r++) {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                ColumnMeta column = columns[i];
+                if (column.isForeignKey()) row[i] = parent;
+                else if (column.getType() == String.class) row[i] = "value" + (r & 1023);
+                else row[i] = r;
+            }
+            rows[r] = row;
+        }
+        return rows;
+    }
+
+    private static <T> void run(TableMeta<T> table, Object[][] rows) throws Exception {
+        long sink = 0;
+        double[] reflective = new double[2];
+        double[] handles = new double[2];
+
+        for (int round = 0; round < ROUNDS; round++) { // first rounds double as warm-up
+            long start = System.nanoTime();
+            Object[] reflected = hydrateReflective(table, rows);
+            long hydrated = System.nanoTime();
+            sink += readReflective(table, reflected);
+            long done = System.nanoTime();
+            reflective[0] = rate(hydrated - start);
+            reflective[1] = rate(done - hydrated);
+
+            start = System.nanoTime();
+            Object[] handled = hydrateHandles(table, rows);
+            hydrated = System.nanoTime();
+            sink += readHandles(table, handled);
+            done = System.nanoTime();
+            handles[0] = rate(hydrated - start);
+            handles[1] = rate(done - hydrated);
+        }
+
+        System.out.printf("%-8s hydrate: reflection %,12.0f rows/s | accessors %,12.0f rows/s (x%.1f)%n",
+                table.getEntityClass().getSimpleName(), reflective[0], handles[0], handles[0] / reflective[0]);
+        System.out.printf("%-8s read:    reflection %,12.0f rows/s | accessors %,12.0f rows/s (x%.1f)  [%d]%n",
+                "", reflective[1], handles[1], handles[1] / reflective[1], sink & 1);
+    }
+
+    private static double rate(long nanos) {
+        return ROWS / (nanos / 1_000_000_000.0);
+    }
+
+    // Per-row lookup, as SQLBuilder did before ColumnMeta carried accessors
+    private static <T> Object[] hydrateReflective(TableMeta<T> table, Object[][] rows) throws Exception {
+        Object[] out = new Object[rows.length];
+        ColumnMeta[] columns = table.getColumns();
+        for (int r = 0; r < rows.length; r++) {
+            T entity = table.getEntityClass().getDeclaredConstructor().newInstance();
+            for (int i = 0; i < columns.length; i++) {
+                Field field = table.getEntityClass().getDeclaredField(columns[i].getFieldName());
+                field.setAccessible(true);
+                field.set(entity, rows[r][i]);
+            }
+            out[r] = entity;
+        }
+        return out;
+    }
+
+    private static <T> long readReflective(TableMeta<T> table, Object[] entities) throws Exception {
+        long count = 0;
+        for (Object entity : entities) {
+            for (ColumnMeta column : table.getColumns()) {
+                Field field = entity.getClass().getDeclaredField(column.getFieldName());
+                field.setAccessible(true);
+                if (field.get(entity) != null) count++;
+            }
+        }
+        return count;
+    }
+
+    private static <T> Object[] hydrateHandles(TableMeta<T> table, Object[][] rows) {
+        Object[] out = new Object[rows.length];
+        ColumnMeta[] columns = table.getColumns();
+        for (int r = 0; r < rows.length; r++) {
+            T entity = table.newInstance();
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].setValue(entity, rows[r][i]);
+            }
+            out[r] = entity;
+        }
+        return out;
+    }
+
+    private static <T> long readHandles(TableMeta<T> table, Object[] entities) {
+        long count = 0;
+        for (Object entity : entities) {
+            for (ColumnMeta column : table.getColumns()) {
+                if (column.getValue(entity) != null) count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,134 @@
+package dev.alortie.jorm.cache;
+
+import dev.alortie.jorm.annotations.EvictionPolicy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+
+    private static Object[] row(Object... values) {
+        return values;
+    }
+
+    @Test
+    void returnsCopiesOfCachedRows() {
+        EntityCache cache = new EntityCache(10, 0, EvictionPolicy.LRU);
+        byte[] data = {1, 2};
+        cache.put(1, row(1, "a", data), cache.generation());
+        data[0] = 9;
+
+        Object[] first = cache.get(1);
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) first[2]);
+        first[1] = "changed";
+        ((byte[]) first[2])[1] = 9;
+
+        Object[] second = cache.get(1);
+        assertEquals("a", second[1]);
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) second[2]);
+    }
+
+    @Test
+    void missesUnknownKeys() {
+        EntityCache cache = new EntityCache(10, 0, EvictionPolicy.LRU);
+        assertNull(cache.get(1));
+        cache.put(null, row(1), cache.generation());
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    void dropsRowsReadBeforeAnInvalidation() {
+        EntityCache cache = new EntityCache(10, 0, EvictionPolicy.LRU);
+        long generation = cache.generation();
+        cache.invalidate(1); // a write lands while the row is being read
+        cache.put(1, row(1, "stale"), generation);
+        assertNull(cache.get(1));
+
+        cache.put(1, row(1, "fresh"), cache.generation());
+        assertEquals("fresh", cache.get(1)[1]);
+    }
+
+    @Test
+    void invalidationRemovesRows() {
+        EntityCache cache = new EntityCache(10, 0, EvictionPolicy.LRU);
+        cache.put(1, row(1), cache.generation());
+        cache.put(2, row(2), cache.generation());
+
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(2));
+
+        cache.invalidateAll();
+        assertNull(cache.get(2));
+        assertEquals(0, cache.getStats().getEstimatedBytes());
+        assertEquals(2, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    void lruEvictsTheLeastRecentlyUsedRow() {
+        EntityCache cache = new EntityCache(2, 0, EvictionPolicy.LRU);
+        cache.put(1, row(1), cache.generation());
+        cache.put(2, row(2), cache.generation());
+        cache.get(1);
+        cache.put(3, row(3), cache.generation());
+
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(1));
+        assertNotNull(cache.get(3));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void tinyLfuAdmitsOnlyRowsUsedMoreThanTheEvictionCandidate() {
+        EntityCache cache = new EntityCache(2, 0, EvictionPolicy.TINY_LFU);
+        cache.put(1, row(1), cache.generation());
+        cache.put(2, row(2), cache.generation());
+        for (int i = 0; i < 3; i++) {
+            cache.get(1);
+            cache.get(2);
+        }
+
+        cache.put(3, row(3), cache.generation());
+        assertEquals(1, cache.getStats().getRejections());
+        assertEquals(2, cache.getStats().getSize());
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(cache.get(3));
+        }
+        cache.put(3, row(3), cache.generation());
+        assertEquals(1, cache.getStats().getEvictions());
+        assertNull(cache.get(1)); // least recently used of the two
+        assertNotNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void rowsExpireAfterTheirTtl() throws InterruptedException {
+        EntityCache cache = new EntityCache(10, 1, EvictionPolicy.LRU);
+        cache.put(1, row(1), cache.generation());
+        cache.put(2, row(2), cache.generation());
+        assertNotNull(cache.get(1));
+
+        Thread.sleep(1100);
+        assertNull(cache.get(1));
+        cache.purgeExpired();
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals(2, cache.getStats().getExpirations());
+        assertEquals(0, cache.getStats().getEstimatedBytes());
+    }
+
+    @Test
+    void zeroTtlNeverExpires() {
+        EntityCache cache = new EntityCache(10, 0, EvictionPolicy.LRU);
+        cache.put(1, row(1), cache.generation());
+        cache.purgeExpired();
+        assertNotNull(cache.get(1));
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new EntityCache(0, 0, EvictionPolicy.LRU));
+        assertThrows(IllegalArgumentException.class, () -> new EntityCache(10, -1, EvictionPolicy.LRU));
+    }
+}
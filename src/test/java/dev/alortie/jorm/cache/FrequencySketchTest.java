@@ -0,0 +1,45 @@
+package dev.alortie.jorm.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void countsIncrements() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        assertEquals(0, sketch.frequency("a"));
+        for (int i = 0; i < 3; i++) {
+            sketch.increment("a");
+        }
+        sketch.increment("b");
+
+        assertEquals(3, sketch.frequency("a"));
+        assertEquals(1, sketch.frequency("b"));
+    }
+
+    @Test
+    void countersSaturateAtFifteen() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 40; i++) {
+            sketch.increment("a");
+        }
+        assertEquals(15, sketch.frequency("a"));
+    }
+
+    @Test
+    void countsAreHalvedPeriodically() {
+        FrequencySketch sketch = new FrequencySketch(16); // resets after 160 additions
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+        for (int i = 0; i < 144; i++) {
+            sketch.increment(i);
+        }
+        assertEquals(15, sketch.frequency("hot"));
+
+        sketch.increment(144);
+        assertEquals(7, sketch.frequency("hot"));
+    }
+}
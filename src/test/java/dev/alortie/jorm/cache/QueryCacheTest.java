@@ -0,0 +1,75 @@
+package dev.alortie.jorm.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+
+    @Test
+    void hitsWhileTheWriteStampIsUnchanged() {
+        QueryCache cache = new QueryCache(10);
+        cache.put("q", List.of(3, 1, 2), 7, 60);
+
+        assertEquals(List.of(3, 1, 2), cache.get("q", 7));
+        assertEquals(List.of(3, 1, 2), cache.get("q", 7));
+        assertEquals(2, cache.getHits());
+        assertNull(cache.get("other", 7));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void aWriteSinceTheQueryDropsTheResult() {
+        QueryCache cache = new QueryCache(10);
+        cache.put("q", List.of(1), 7, 60);
+
+        assertNull(cache.get("q", 8));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("q", 7));
+    }
+
+    @Test
+    void resultsExpireAfterTheirTtl() {
+        QueryCache cache = new QueryCache(10);
+        cache.put("q", List.of(1), 7, 0);
+        assertNull(cache.get("q", 7));
+    }
+
+    @Test
+    void storesACopyOfTheKeys() {
+        QueryCache cache = new QueryCache(10);
+        List<Object> keys = new ArrayList<>(List.of(1, 2));
+        cache.put("q", keys, 7, 60);
+        keys.add(3);
+
+        List<Object> cached = cache.get("q", 7);
+        assertEquals(List.of(1, 2), cached);
+        assertThrows(UnsupportedOperationException.class, () -> cached.add(4));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedResult() {
+        QueryCache cache = new QueryCache(2);
+        cache.put("a", List.of(1), 7, 60);
+        cache.put("b", List.of(2), 7, 60);
+        cache.get("a", 7);
+        cache.put("c", List.of(3), 7, 60);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b", 7));
+        assertNotNull(cache.get("a", 7));
+        assertNotNull(cache.get("c", 7));
+    }
+
+    @Test
+    void clearEmptiesTheCache() {
+        QueryCache cache = new QueryCache(10);
+        cache.put("q", List.of(1), 7, 60);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new QueryCache(0));
+    }
+}
@@ -0,0 +1,47 @@
+package dev.alortie.jorm.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+    private static final String ORDERING = "created DESC, id ASC";
+
+    @Test
+    void roundTripsEverySupportedType() {
+        Object[] values = {7, 7L, (short) 7, 1.5d, 2.5f, true, "\u00e9/+?", LocalDate.of(2024, 2, 29),
+                LocalDateTime.of(2024, 2, 29, 13, 45, 1, 500)};
+        assertArrayEquals(values, KeysetCursor.decode(ORDERING, KeysetCursor.encode(ORDERING, values)));
+    }
+
+    @Test
+    void tokensAreUrlSafe() {
+        String cursor = KeysetCursor.encode(ORDERING, new Object[]{"~~~???>>>", Long.MAX_VALUE});
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    }
+
+    @Test
+    void rejectsACursorForAnotherOrdering() {
+        String cursor = KeysetCursor.encode(ORDERING, new Object[]{1});
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("id ASC", cursor));
+        assertTrue(e.getMessage().contains("different ordering"), e.getMessage());
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(ORDERING, "not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(ORDERING, "AQ"));
+        String cursor = KeysetCursor.encode(ORDERING, new Object[]{1, 2});
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(ORDERING, cursor.substring(0, cursor.length() - 3)));
+    }
+
+    @Test
+    void rejectsValuesItCannotEncode() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.encode(ORDERING, new Object[]{null}));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.encode(ORDERING, new Object[]{BigDecimal.ONE}));
+    }
+}
@@ -0,0 +1,103 @@
+package dev.alortie.jorm.core;
+
+import Entities.Post;
+import dev.alortie.jorm.metadata.TableMeta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PredicateTest {
+    private RecordingAdapter adapter;
+    private final List<Object> params = new ArrayList<>();
+
+    @BeforeEach
+    void install() {
+        adapter = RecordingAdapter.install();
+    }
+
+    @AfterEach
+    void restore() {
+        adapter.setMaxInListSize(1000);
+    }
+
+    private String render(Predicate predicate, String alias) {
+        StringBuilder sql = new StringBuilder();
+        predicate.appendTo(sql, alias, params);
+        return sql.toString();
+    }
+
+    @Test
+    void rendersComparisons() {
+        assertEquals("username = ?", render(Predicate.eq("username", "a"), null));
+        assertEquals("t0.user_id >= ?", render(Predicate.compare("user_id", ">=", 5), "t0"));
+        assertEquals("user_id BETWEEN ? AND ?", render(Predicate.between("user_id", 1, 9), null));
+        assertEquals(List.of("a", 5, 1, 9), params);
+    }
+
+    @Test
+    void rendersNullChecksWithoutParameters() {
+        assertEquals("t0.title IS NULL", render(Predicate.isNull("title"), "t0"));
+        assertEquals("title IS NOT NULL", render(Predicate.isNotNull("title"), null));
+        assertTrue(params.isEmpty());
+    }
+
+    @Test
+    void groupsAndNegationsNest() {
+        Predicate predicate = Predicate.or(
+                Predicate.and(Predicate.eq("a", 1), Predicate.eq("b", 2)),
+                Predicate.not(Predicate.isNull("c")));
+        assertEquals("((a = ? AND b = ?) OR NOT (c IS NULL))", render(predicate, null));
+        assertEquals(List.of(1, 2), params);
+        assertThrows(IllegalArgumentException.class, Predicate::and);
+    }
+
+    @Test
+    void valueListsAreDeduplicatedAndPaddedToABucket() {
+        assertEquals("user_id IN (?, ?, ?, ?, ?, ?, ?, ?)", render(Predicate.in("user_id", List.of(3, 1, 3, 2)), null));
+        assertEquals(List.of(3, 1, 2, 2, 2, 2, 2, 2), params);
+    }
+
+    @Test
+    void emptyValueListsMatchNothingOrEverything() {
+        assertEquals("1=0", render(Predicate.in("user_id", Collections.emptyList()), null));
+        assertEquals("1=1", render(Predicate.notIn("user_id", Collections.emptyList()), null));
+        assertTrue(params.isEmpty());
+    }
+
+    @Test
+    void longValueListsAreChunkedAtTheAdapterLimit() {
+        adapter.setMaxInListSize(3);
+        List<Integer> ids = List.of(1, 2, 3, 4);
+        assertEquals("(t0.user_id IN (?, ?, ?) OR t0.user_id IN (?, ?, ?))", render(Predicate.in("user_id", ids), "t0"));
+        assertEquals(List.of(1, 2, 3, 4, 4, 4), params);
+
+        params.clear();
+        assertEquals("(user_id NOT IN (?, ?, ?) AND user_id NOT IN (?, ?, ?))", render(Predicate.notIn("user_id", ids), null));
+    }
+
+    @Test
+    void valueListsRejectBindMarkers() {
+        assertThrows(IllegalArgumentException.class, () -> Predicate.in("user_id", List.of(5, PreparedQuery.bind())));
+        assertThrows(IllegalArgumentException.class, () -> Predicate.notIn("user_id", List.of(PreparedQuery.bind(), PreparedQuery.bind())));
+    }
+
+    @Test
+    void subqueriesRenderAndReportTheirTables() {
+        QueryBuilder<Post> posts = JORM.getInstance().repository(Post.class).query().select("user_id").where("title", "=", "x");
+        Predicate predicate = Predicate.in("user_id", posts);
+        assertEquals("user_id IN (SELECT user_id FROM test.post WHERE title = ?)", render(predicate, null));
+        assertEquals(List.of("x"), params);
+
+        Set<TableMeta<?>> tables = new HashSet<>();
+        Predicate.not(predicate).collectTables(tables);
+        assertEquals(Set.of(JORM.getInstance().repository(Post.class)), tables);
+    }
+}
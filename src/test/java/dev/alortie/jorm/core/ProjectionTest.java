@@ -0,0 +1,129 @@
+package dev.alortie.jorm.core;
+
+import Entities.User;
+import dev.alortie.jorm.metadata.ColumnMeta;
+import dev.alortie.jorm.metadata.TableMeta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectionTest {
+    private TableMeta<User> users;
+    private ColumnMeta userId;
+    private ColumnMeta username;
+
+    record Row(int id, String username) {}
+
+    record Reversed(String username, long userId) {}
+
+    record Unmatched(int id, String email) {}
+
+    static class Positional {
+        final long id;
+        final String name;
+
+        Positional(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    static class Fields {
+        Integer userId;
+        String username;
+        String unrelated;
+    }
+
+    enum Level { LOW, HIGH }
+
+    @BeforeEach
+    void install() {
+        RecordingAdapter.install();
+        users = JORM.getInstance().repository(User.class);
+        userId = users.getColumns()[0];
+        username = users.getColumns()[1];
+    }
+
+    @Test
+    void scalarsTakeTheOnlyColumn() {
+        assertEquals(Long.valueOf(5), Projection.of(Long.class, List.of(userId)).map(new Object[]{5}));
+        assertEquals("a", Projection.of(String.class, List.of(username)).map(new Object[]{"a"}));
+        assertThrows(IllegalArgumentException.class, () -> Projection.of(Long.class, List.of(userId, username)));
+    }
+
+    @Test
+    void recordsTakeComponentsByName() {
+        assertEquals(new Row(5, "a"), Projection.of(Row.class, List.of(userId, username)).map(new Object[]{5L, "a"}));
+        assertEquals(new Reversed("a", 5), Projection.of(Reversed.class, List.of(userId, username)).map(new Object[]{5, "a"}));
+        assertThrows(IllegalArgumentException.class, () -> Projection.of(Unmatched.class, List.of(userId, username)));
+    }
+
+    @Test
+    void aSingleMatchingConstructorTakesColumnsInOrder() {
+        Positional positional = Projection.of(Positional.class, List.of(userId, username)).map(new Object[]{5, "a"});
+        assertEquals(5L, positional.id);
+        assertEquals("a", positional.name);
+    }
+
+    @Test
+    void otherClassesHaveFieldsSetByName() {
+        Fields fields = Projection.of(Fields.class, List.of(username, userId)).map(new Object[]{"a", 5L});
+        assertEquals(Integer.valueOf(5), fields.userId);
+        assertEquals("a", fields.username);
+        assertNull(fields.unrelated);
+    }
+
+    @Test
+    void projectionsAreReusedPerTypeAndColumns() {
+        assertSame(Projection.of(Row.class, List.of(userId, username)), Projection.of(Row.class, List.of(userId, username)));
+    }
+
+    @Test
+    void columnsForPicksTheMatchingColumns() {
+        assertEquals(List.of(userId, username), Projection.columnsFor(Row.class, users));
+        assertEquals(List.of(username, userId), Projection.columnsFor(Reversed.class, users));
+        assertEquals(List.of(userId, username), Projection.columnsFor(Fields.class, users));
+        assertThrows(IllegalArgumentException.class, () -> Projection.columnsFor(Unmatched.class, users));
+        assertThrows(IllegalArgumentException.class, () -> Projection.columnsFor(Long.class, users));
+    }
+
+    @Test
+    void convertWidensAndNarrowsNumbers() {
+        assertEquals(5, Projection.convert(5L, int.class));
+        assertEquals(5L, Projection.convert(5, Long.class));
+        assertEquals(2.5d, Projection.convert(2.5f, double.class));
+        assertEquals(new BigDecimal("12"), Projection.convert(12L, BigDecimal.class));
+        assertEquals(BigInteger.valueOf(12), Projection.convert(new BigDecimal("12.7"), BigInteger.class));
+        assertEquals(true, Projection.convert(1, boolean.class));
+        assertEquals(1, Projection.convert(true, int.class));
+    }
+
+    @Test
+    void convertFillsPrimitiveDefaultsForNull() {
+        assertEquals(0, Projection.convert(null, int.class));
+        assertEquals(0L, Projection.convert(null, long.class));
+        assertEquals(false, Projection.convert(null, boolean.class));
+        assertEquals('\0', Projection.convert(null, char.class));
+        assertNull(Projection.convert(null, Integer.class));
+    }
+
+    @Test
+    void convertMapsJdbcTypes() {
+        LocalDateTime time = LocalDateTime.of(2024, 2, 29, 13, 45);
+        assertEquals(time, Projection.convert(Timestamp.valueOf(time), LocalDateTime.class));
+        assertEquals(Level.HIGH, Projection.convert("HIGH", Level.class));
+        assertEquals("5", Projection.convert(5, String.class));
+        byte[] bytes = {1};
+        assertSame(bytes, Projection.convert(bytes, byte[].class));
+        assertThrows(IllegalArgumentException.class, () -> Projection.convert("x", LocalDateTime.class));
+        assertThrows(IllegalArgumentException.class, () -> Projection.convert(Arrays.asList(1), Integer.class));
+    }
+}
@@ -0,0 +1,75 @@
+package dev.alortie.jorm.core;
+
+import Entities.Comment;
+import Entities.Post;
+import Entities.User;
+import dev.alortie.jorm.metadata.TableMeta;
+import dev.alortie.jorm.utils.Log;
+import dev.alortie.jorm.utils.LogLevel;
+import dev.alortie.jorm.utils.SQLBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * SQLBuilder that never connects: tables are prepared but not created, and the batch writes a
+ * session flush makes are recorded instead of run. JORM is a singleton, so tests share the one
+ * instance set up by {@link #install()}.
+ */
+class RecordingAdapter extends SQLBuilder {
+    private static RecordingAdapter instance;
+
+    // Batch writes in the order they were made, e.g. "insertBatch users [User{...}]"
+    final List<String> calls = new ArrayList<>();
+    // Fails the next deleteByIds, to test a flush that rolls back
+    boolean failDeletes;
+
+    private RecordingAdapter() {
+        super("jdbc:mysql://localhost:3306/test", "test", "test", "test");
+    }
+
+    // The shared adapter with its record cleared, initializing JORM with the test entities on first use
+    static synchronized RecordingAdapter install() {
+        if (instance == null) {
+            Log.setInstance(LogLevel.NONE);
+            instance = new RecordingAdapter();
+            JORM.InitInstance(instance, List.of(User.class, Post.class, Comment.class));
+        }
+        instance.calls.clear();
+        instance.failDeletes = false;
+        return instance;
+    }
+
+    @Override
+    public void createTable(TableMeta<?> tableMeta) {
+    }
+
+    @Override
+    public void disconnect() {
+    }
+
+    @Override
+    public void transaction(Runnable work) {
+        work.run();
+    }
+
+    @Override
+    public void insertBatch(TableMeta<?> tableMeta, Collection<?> entities) {
+        calls.add("insertBatch " + tableMeta.getTableName() + " " + entities);
+    }
+
+    @Override
+    public void updateBatch(TableMeta<?> tableMeta, Collection<?> entities) {
+        calls.add("updateBatch " + tableMeta.getTableName() + " " + entities);
+    }
+
+    @Override
+    public int deleteByIds(TableMeta<?> tableMeta, Collection<?> ids) {
+        if (failDeletes) {
+            throw new RuntimeException("Failed to delete from " + tableMeta.getTableName());
+        }
+        calls.add("deleteByIds " + tableMeta.getTableName() + " " + ids);
+        return ids.size();
+    }
+}
@@ -0,0 +1,135 @@
+package dev.alortie.jorm.core;
+
+import Entities.Comment;
+import Entities.Post;
+import Entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTest {
+    private RecordingAdapter adapter;
+    private Session session;
+
+    @BeforeEach
+    void open() {
+        adapter = RecordingAdapter.install();
+        session = JORM.getInstance().openSession();
+    }
+
+    @AfterEach
+    void close() {
+        session.close();
+    }
+
+    private static User user(int id, String username) {
+        User user = new User(username);
+        user.id = id;
+        return user;
+    }
+
+    @Test
+    void persistQueuesOneInsert() {
+        User user = new User("a");
+        session.persist(user);
+        session.persist(user);
+        assertEquals(1, session.getPendingCount());
+
+        session.flush();
+        assertEquals(List.of("insertBatch users [" + user + "]"), adapter.calls);
+        assertEquals(0, session.getPendingCount());
+    }
+
+    @Test
+    void removeCancelsQueuedPersist() {
+        User user = new User("a");
+        session.persist(user);
+        session.remove(user);
+        assertEquals(0, session.getPendingCount());
+
+        session.flush();
+        assertEquals(Collections.emptyList(), adapter.calls);
+    }
+
+    @Test
+    void persistAfterCancelledPersistInsertsOnce() {
+        User user = new User("a");
+        session.persist(user);
+        session.remove(user);
+        session.persist(user);
+
+        session.flush();
+        assertEquals(List.of("insertBatch users [" + user + "]"), adapter.calls);
+    }
+
+    @Test
+    void updateOfQueuedPersistStaysAnInsert() {
+        User user = new User("a");
+        session.persist(user);
+        session.update(user);
+
+        session.flush();
+        assertEquals(List.of("insertBatch users [" + user + "]"), adapter.calls);
+    }
+
+    @Test
+    void removeReplacesQueuedUpdate() {
+        User user = user(7, "a");
+        session.update(user);
+        session.remove(user);
+        assertEquals(1, session.getPendingCount());
+
+        session.flush();
+        assertEquals(List.of("deleteByIds users [7]"), adapter.calls);
+    }
+
+    @Test
+    void flushInsertsParentsFirstAndDeletesChildrenFirst() {
+        User author = new User("a");
+        Post post = new Post(author, "p");
+        session.persist(post);
+        session.persist(author);
+        Post oldPost = new Post(user(1, "b"), "old");
+        oldPost.id = 2;
+        Comment oldComment = new Comment(oldPost, "c");
+        oldComment.id = 3;
+        session.remove(oldPost);
+        session.remove(oldComment);
+
+        session.flush();
+        assertEquals(List.of(
+                "insertBatch users [" + author + "]",
+                "insertBatch post [" + post + "]",
+                "deleteByIds comment [3]",
+                "deleteByIds post [2]"
+        ), adapter.calls);
+    }
+
+    @Test
+    void failedFlushKeepsQueue() {
+        session.update(user(1, "a"));
+        session.remove(user(2, "b"));
+        adapter.failDeletes = true;
+
+        assertThrows(RuntimeException.class, session::flush);
+        assertEquals(2, session.getPendingCount());
+
+        adapter.failDeletes = false;
+        adapter.calls.clear();
+        session.flush();
+        assertEquals(2, adapter.calls.size());
+        assertEquals(0, session.getPendingCount());
+    }
+
+    @Test
+    void queueRejectsNonEntitiesAndClosedSessions() {
+        assertThrows(IllegalArgumentException.class, () -> session.persist("not an entity"));
+        session.close();
+        assertThrows(IllegalStateException.class, () -> session.persist(new User("a")));
+    }
+}
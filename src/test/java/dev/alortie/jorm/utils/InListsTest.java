@@ -0,0 +1,38 @@
+package dev.alortie.jorm.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InListsTest {
+
+    @Test
+    void bucketsGrowInPowersOfTwoFromEight() {
+        assertEquals(8, InLists.bucketSize(1, 1000));
+        assertEquals(8, InLists.bucketSize(8, 1000));
+        assertEquals(16, InLists.bucketSize(9, 1000));
+        assertEquals(512, InLists.bucketSize(300, 1000));
+    }
+
+    @Test
+    void bucketsAreCappedAtTheLimit() {
+        assertEquals(1000, InLists.bucketSize(600, 1000));
+        assertEquals(5, InLists.bucketSize(3, 5));
+        assertEquals(5, InLists.bucketSize(5, 5));
+    }
+
+    @Test
+    void padRepeatsTheLastValue() {
+        assertArrayEquals(new Object[]{1, 2, 3, 3, 3, 3, 3, 3}, InLists.pad(List.of(1, 2, 3), 1000));
+        assertArrayEquals(new Object[]{1, 2, 2}, InLists.pad(List.of(1, 2), 3));
+        assertArrayEquals(new Object[]{1, 2, 3}, InLists.pad(List.of(1, 2, 3), 3));
+    }
+
+    @Test
+    void placeholdersMatchTheCount() {
+        assertEquals("?", InLists.placeholders(1));
+        assertEquals("?, ?, ?", InLists.placeholders(3));
+    }
+}